@@ -88,6 +88,7 @@ create table tag
         primary key,
     tagName    varchar(256)                       null comment '标签名称',
     parentId   bigint                             null comment '父标签id ',
+    synonymId  bigint                             null comment '同义标签id（指向规范标签）',
     isParent   tinyint                            null comment '是否为父标签 0-不是，1-父标签',
     createTime datetime default CURRENT_TIMESTAMP null comment '创建时间',
     updateTime datetime default CURRENT_TIMESTAMP null on update CURRENT_TIMESTAMP,
@@ -158,3 +159,30 @@ create table user_team
 )
     comment '用户队伍关系';
 
+
+-- 用户标签关系（user.tags JSON 的规范化存储，两个方向都有联合索引）
+create table user_tag
+(
+    id         bigint auto_increment comment 'id'
+        primary key,
+    userId     bigint                             not null comment '用户id',
+    tagId      bigint                             not null comment '标签id',
+    createTime datetime default CURRENT_TIMESTAMP null comment '创建时间',
+    constraint unique_user_tag
+        unique (userId, tagId),
+    index idx_tag_user (tagId, userId)
+)
+    comment '用户标签关系';
+
+-- 用户好友关系（替代 user.friendId JSON，每对好友保存两行，按 userId 分页查询好友）
+create table user_friend
+(
+    id         bigint auto_increment comment 'id'
+        primary key,
+    userId     bigint                             not null comment '用户id',
+    friendId   bigint                             not null comment '好友id',
+    createTime datetime default CURRENT_TIMESTAMP null comment '创建时间',
+    constraint unique_user_friend
+        unique (userId, friendId)
+)
+    comment '用户好友关系';
@@ -0,0 +1,3 @@
+-- 已有库升级：标签同义词（新建的库 create_table.sql 中已包含该字段，不需要执行）
+alter table tag
+    add column synonymId bigint null comment '同义标签id（指向规范标签）' after parentId;
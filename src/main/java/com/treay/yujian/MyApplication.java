@@ -13,7 +13,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
  */
 @SpringBootApplication
 @MapperScan("com.treay.yujian.mapper")
-//@EnableScheduling
+@EnableScheduling
 public class MyApplication {
 
     public static void main(String[] args) {
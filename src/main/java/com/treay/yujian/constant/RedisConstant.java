@@ -2,13 +2,36 @@ package com.treay.yujian.constant;
 
 public interface RedisConstant {
     public static final String TOKEN_KEY = "yujian:token:uuid:";
-    public static final String USER_SEARCH_KEY = "yujian:user:recommed:";
-    public static final String USER_MATCH_KEY = "yujian:user:match:";
+    public static final String TOKEN_INVALIDATE_TOPIC = "yujian:token:invalidate";
+    public static final String TOKEN_REVOKED_KEY = "yujian:token:revoked";
+    public static final String USER_RECOMMEND_RANK_KEY = "yujian:user:recommend:rank";
+    public static final String USER_RECOMMEND_RANK_LOCK = "yujian:user:recommend:rank:lock";
+
+    public static final String PRECACHE_SHARD_LOCK = "yujian:precache:shard:lock:";
+    public static final String PRECACHE_DONE_KEY = "yujian:precache:done:";
+    public static final String PRECACHE_STATS_KEY = "yujian:precache:stats:";
+    public static final String USER_MATCH_LIST_KEY = "yujian:user:match:list:";
+    public static final String USER_MATCH_ACTIVE_KEY = "yujian:user:match:active";
+    public static final String USER_MATCH_DIRTY_KEY = "yujian:user:match:dirty";
+    public static final String USER_MATCH_PROCESSING_KEY = "yujian:user:match:dirty:processing";
+    public static final String USER_MATCH_LOCK = "yujian:user:match:maintain:lock";
 
     public static final String ADD_FRIEND_KEY = "yujian:user:friend:add:";
     public static final String SEND_MESSAGE_KEY = "yujian:user:sendMessage:";
     public static final String MESSAGE_KEY = "yujian:user:message:";
 
+    public static final String USER_TAG_BACKFILL_CURSOR_KEY = "yujian:user_tag:backfill:cursor";
+    public static final String USER_TAG_BACKFILL_LOCK = "yujian:user_tag:backfill:lock";
+
+    public static final String USER_FRIEND_BACKFILL_CURSOR_KEY = "yujian:user_friend:backfill:cursor";
+    public static final String USER_FRIEND_BACKFILL_LOCK = "yujian:user_friend:backfill:lock";
+
+    public static final String TAG_INDEX_KEY = "yujian:tag:";
+    public static final String TAG_INDEX_REBUILD_KEY = "yujian:tag:rebuild:";
+    public static final String TAG_SEARCH_KEY = "yujian:tag:search:";
+    public static final String TAG_INDEX_REBUILD_LOCK = "yujian:tag:rebuild:lock";
+    public static final String TAG_POPULARITY_KEY = "yujian:tag:popularity";
+
     public static final String JOIN_TEAM_KEY = "yujian:join_team:lock";
 
 }
@@ -0,0 +1,92 @@
+package com.treay.yujian.controller;
+
+import com.treay.yujian.common.BaseResponse;
+import com.treay.yujian.common.ErrorCode;
+import com.treay.yujian.common.ResultUtils;
+import com.treay.yujian.exception.BusinessException;
+import com.treay.yujian.manager.RedisTagIndex;
+import com.treay.yujian.manager.TagSuggester;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.model.request.CurrentUserRequest;
+import com.treay.yujian.model.vo.TagIndexCheckVO;
+import com.treay.yujian.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 标签接口
+ *
+ * @author Treay
+ */
+@RestController
+@RequestMapping("/tag")
+@CrossOrigin(origins = {"http://localhost:3000","http://yujian.treay.cn"},allowCredentials="true")
+@Slf4j
+public class TagController {
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private RedisTagIndex redisTagIndex;
+
+    @Resource
+    private TagSuggester tagSuggester;
+
+    /**
+     * 标签联想（按输入前缀返回热门标签）
+     *
+     * @param prefix 输入前缀
+     * @param limit  返回数量，默认 10，最多 20
+     * @return
+     */
+    @GetMapping("/suggest")
+    public BaseResponse<List<String>> suggestTags(String prefix, Integer limit) {
+        if (StringUtils.isBlank(prefix)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        int size = limit == null || limit <= 0 ? 10 : Math.min(limit, 20);
+        return ResultUtils.success(tagSuggester.suggest(prefix, size));
+    }
+
+    /**
+     * 重建 Redis 标签索引（仅管理员）
+     *
+     * @param currentUserRequest
+     * @return 重建的标签数
+     */
+    @PostMapping("/index/rebuild")
+    public BaseResponse<Integer> rebuildTagIndex(@RequestBody CurrentUserRequest currentUserRequest) {
+        checkAdmin(currentUserRequest);
+        return ResultUtils.success(redisTagIndex.rebuild());
+    }
+
+    /**
+     * 检查 Redis 标签索引与 user.tags 是否一致（仅管理员）
+     *
+     * @param currentUserRequest
+     * @return
+     */
+    @GetMapping("/index/check")
+    public BaseResponse<TagIndexCheckVO> checkTagIndex(CurrentUserRequest currentUserRequest) {
+        checkAdmin(currentUserRequest);
+        return ResultUtils.success(redisTagIndex.check());
+    }
+
+    private void checkAdmin(CurrentUserRequest currentUserRequest) {
+        if (currentUserRequest == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        User loginUser = userService.getLoginUser(currentUserRequest.getUserAccount(), currentUserRequest.getUuid());
+        if (loginUser == null) {
+            throw new BusinessException(ErrorCode.NOT_LOGIN);
+        }
+        if (!userService.isAdmin(loginUser)) {
+            throw new BusinessException(ErrorCode.NO_AUTH);
+        }
+    }
+}
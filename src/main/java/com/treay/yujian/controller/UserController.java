@@ -8,28 +8,28 @@ import com.treay.yujian.common.BaseResponse;
 import com.treay.yujian.common.ErrorCode;
 import com.treay.yujian.common.ResultUtils;
 import com.treay.yujian.exception.BusinessException;
+import com.treay.yujian.manager.LoginUserCache;
 import com.treay.yujian.mapper.UserMapper;
 import com.treay.yujian.model.dto.UserDTO;
 import com.treay.yujian.model.request.*;
 import com.treay.yujian.model.domain.User;
+import com.treay.yujian.model.vo.FriendSuggestionVO;
+import com.treay.yujian.model.vo.TagVo;
+import com.treay.yujian.model.vo.TokenCacheStatsVO;
 import com.treay.yujian.model.vo.UserSendMessage;
 import com.treay.yujian.model.vo.WebSocketRespVO;
 
 import com.treay.yujian.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.baomidou.mybatisplus.core.enums.SqlKeyword.DESC;
-import static com.treay.yujian.constant.RedisConstant.TOKEN_KEY;
-import static com.treay.yujian.constant.RedisConstant.USER_SEARCH_KEY;
 
 /**
  * 用户接口
@@ -48,7 +48,7 @@ public class UserController {
 
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private LoginUserCache loginUserCache;
 
 
     /**
@@ -159,24 +159,61 @@ public class UserController {
     }//处理拒绝好友请求的逻辑，整体流程包括参数验证、用户登录状态检查、拒绝好友请求的处理以及返回统一格式的处理结果
 
     /**
-     * 获取好友列表
-     * @param currentUserRequest
+     * 分页获取好友列表
+     * @param friendListRequest
      * @return
      */
     @GetMapping("/friend/list")
-    public BaseResponse<List<User>> listFriend(CurrentUserRequest currentUserRequest) {
+    public BaseResponse<Page<User>> listFriend(FriendListRequest friendListRequest) {
         //判空，用户请求是否为空
-        if (currentUserRequest == null) {
+        if (friendListRequest == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        long pageNum = friendListRequest.getPageNum();
+        long pageSize = friendListRequest.getPageSize();
+        if (pageNum <= 0 || pageSize <= 0 || pageSize > 100) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
         // 调用userService的getLoginUser方法，通过userAccount和uuid获取当前登录的用户信息。
-        User loginUser = userService.getLoginUser(currentUserRequest.getUserAccount(), currentUserRequest.getUuid());
+        User loginUser = userService.getLoginUser(friendListRequest.getUserAccount(), friendListRequest.getUuid());
         if (loginUser == null) {
             throw new BusinessException(ErrorCode.NO_AUTH, "未登录");
         }
-        //调用userService的listFriend方法
-        List<User> friendList = userService.listFriend(loginUser);
-        return ResultUtils.success(friendList);
+        //调用userService的listFriend方法，分页返回好友
+        Page<User> friendPage = userService.listFriend(loginUser, pageNum, pageSize);
+        return ResultUtils.success(friendPage);
+    }
+
+    /**
+     * 可能认识的人
+     * @param currentUserRequest num 为推荐人数，默认 10
+     * @return
+     */
+    @GetMapping("/friend/suggest")
+    public BaseResponse<List<FriendSuggestionVO>> suggestFriends(CurrentUserRequest currentUserRequest) {
+        int limit = currentUserRequest.getNum() <= 0 ? 10 : currentUserRequest.getNum();
+        if (limit > 50) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        User loginUser = userService.getLoginUser(currentUserRequest.getUserAccount(), currentUserRequest.getUuid());
+        if (loginUser == null) {
+            throw new BusinessException(ErrorCode.NOT_LOGIN, "未登录");
+        }
+        return ResultUtils.success(userService.suggestFriends(loginUser, limit));
+    }
+
+    /**
+     * 共同好友
+     * @param mutualFriendRequest
+     * @return
+     */
+    @GetMapping("/friend/mutual")
+    public BaseResponse<List<User>> listMutualFriends(MutualFriendRequest mutualFriendRequest) {
+        User loginUser = userService.getLoginUser(mutualFriendRequest.getUserAccount(), mutualFriendRequest.getUuid());
+        if (loginUser == null) {
+            throw new BusinessException(ErrorCode.NOT_LOGIN, "未登录");
+        }
+        return ResultUtils.success(userService.listMutualFriends(loginUser, mutualFriendRequest.getUserId()));
     }
 
 
@@ -299,14 +336,25 @@ public class UserController {
      */
     @PostMapping("/logout")
     public BaseResponse<Integer> userLogout(CurrentUserRequest userRequest) {
-        String key = TOKEN_KEY + userRequest.getUuid();
-        if (key == null){
-            throw  new BusinessException(ErrorCode.NULL_ERROR,"UUid为空");
-        }
-        Integer result = Math.toIntExact(redisTemplate.opsForHash().delete(key, userRequest.getUserAccount()));
+        int result = userService.userLogout(userRequest.getUserAccount(), userRequest.getUuid());
         return ResultUtils.success(result);
     }
 
+    /**
+     * 本实例登录令牌本地缓存的命中统计（仅管理员）
+     *
+     * @param userRequest
+     * @return
+     */
+    @GetMapping("/token-cache/stats")
+    public BaseResponse<TokenCacheStatsVO> getTokenCacheStats(CurrentUserRequest userRequest) {
+        User loginUser = userService.getLoginUser(userRequest.getUserAccount(), userRequest.getUuid());
+        if (!userService.isAdmin(loginUser)) {
+            throw new BusinessException(ErrorCode.NO_AUTH);
+        }
+        return ResultUtils.success(loginUserCache.getStats());
+    }
+
     /**
      * 获取当前用户
      *
@@ -315,12 +363,11 @@ public class UserController {
      */
     @GetMapping("/current")
     public BaseResponse<User> getCurrentUser(CurrentUserRequest userRequest) {
-        String key = TOKEN_KEY + userRequest.getUuid();
-        User user = (User) redisTemplate.opsForHash().get(key, userRequest.getUserAccount());
-        if (user == null) {
+        User user;
+        try {
+            user = userService.getLoginUser(userRequest.getUserAccount(), userRequest.getUuid());
+        } catch (BusinessException e) {
             throw new BusinessException(ErrorCode.NOT_LOGIN);
-        } else {
-            redisTemplate.expire(TOKEN_KEY + userRequest.getUuid(), 10, TimeUnit.MINUTES);
         }
         QueryWrapper<User> queryWrapper = new QueryWrapper<>();
         queryWrapper.lambda().eq(User::getUserAccount, user.getUserAccount());
@@ -366,6 +413,20 @@ public class UserController {
         return ResultUtils.success(userList);
     }
 
+    /**
+     * 通过昵称和简介搜索用户
+     * @param searchUserByTextRequest
+     * @return
+     */
+    @GetMapping("/search/text")
+    public BaseResponse<Page<User>> searchUsersByText(SearchUserByTextRequest searchUserByTextRequest) {
+        if (StringUtils.isBlank(searchUserByTextRequest.getSearchText())) {
+            throw new BusinessException(ErrorCode.NULL_ERROR);
+        }
+        Page<User> userList = userService.searchUsersByText(searchUserByTextRequest);
+        return ResultUtils.success(userList);
+    }
+
 
     /**
      * 推荐用户
@@ -378,9 +439,7 @@ public class UserController {
    // 这段代码是一个GET请求的接口方法，用于推荐用户列表。它接受参数pageSize（每页记录数）、pageNum（页码）、userAccount（用户账号）
     // 和uuid（用户UUID），用于筛选和分页结果。首先，方法对输入参数进行验证，如果任何参数无效，
     // 则抛出一个带有错误代码的BusinessException异常。接下来，它通过调用userService组件的getLoginUser方法来检查用户是否已登录。
-    // 然后，它创建一个新的Page对象来存储分页结果。如果推荐用户列表未缓存，则从数据库中查询按照addCount属性降序排序的所有用户列表。
-    // 然后，过滤掉当前用户。接下来，它对用户列表进行数据脱敏处理，
-    // 通过调用getSafetyUser方法对每个用户进行处理。经过过滤和脱敏处理后的用户列表设置为userPage对象的记录。
+    // 然后，从所有用户共用的 addCount 排名中截取当前页（排除当前用户），只查询并脱敏这一页的用户。
     @GetMapping("/recommend")
     public BaseResponse<Page<User>> recommendUsers(long pageSize, long pageNum, String userAccount, String uuid) {
         // 参数验证
@@ -451,7 +510,7 @@ public class UserController {
         if (id <= 0) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
-        boolean b = userService.removeById(id);
+        boolean b = userService.deleteUser(id);
         return ResultUtils.success(b);
     }
 
@@ -466,12 +525,11 @@ public class UserController {
         if (matchUserRequest == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR,"参数为空");
         }
-        int num = matchUserRequest.getNum();
         User loginUser = userService.getLoginUser(matchUserRequest.getUserAccount(), matchUserRequest.getUuid());
         if (loginUser == null) {
             throw new BusinessException(ErrorCode.NO_AUTH,"未登录");
         }
-        List<User> matchUser = userService.matchUsers(num, loginUser);
+        List<User> matchUser = userService.matchUsers(matchUserRequest, loginUser);
 
         return ResultUtils.success(matchUser);
     }
@@ -493,17 +551,19 @@ public class UserController {
 //        return ResultUtils.success(user);
 //    }
 
-//    /**
-//     * 显示用户已拥有标签
-//     * @param request
-//     * @return
-//     */
-//    @GetMapping("/get/tags")
-//    public BaseResponse<TagVo> getTags(HttpServletRequest request) {
-//        User loginUser = userService.getLoginUser(request);
-//        TagVo tagVo = userService.getTags(loginUser.getTags(),request);
-//        log.info(tagVo.toString());
-//        return ResultUtils.success(tagVo);
-//    }
+    /**
+     * 显示用户已拥有标签和推荐标签
+     * @param currentUserRequest
+     * @return
+     */
+    @GetMapping("/get/tags")
+    public BaseResponse<TagVo> getTags(CurrentUserRequest currentUserRequest) {
+        if (currentUserRequest == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        User loginUser = userService.getLoginUser(currentUserRequest.getUserAccount(), currentUserRequest.getUuid());
+        TagVo tagVo = userService.getTags(loginUser);
+        return ResultUtils.success(tagVo);
+    }
 
 }
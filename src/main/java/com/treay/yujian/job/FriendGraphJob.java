@@ -0,0 +1,31 @@
+package com.treay.yujian.job;
+
+import com.treay.yujian.manager.FriendGraphManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 内存好友图加载任务（每个实例加载自己的好友图）
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class FriendGraphJob {
+
+    @Resource
+    private FriendGraphManager friendGraphManager;
+
+    // 启动后立即加载，之后每 10 分钟重新加载一次，同步其他实例的修改
+    @Scheduled(fixedDelayString = "${yujian.friend-graph.reload-delay:600000}")
+    public void doLoadFriendGraph() {
+        try {
+            friendGraphManager.reload();
+        } catch (Exception e) {
+            log.error("load friend graph error", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.treay.yujian.job;
+
+import com.treay.yujian.manager.MatchListManager;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+
+import static com.treay.yujian.constant.RedisConstant.USER_MATCH_LOCK;
+
+/**
+ * 匹配列表维护任务
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class MatchListJob {
+
+    @Resource
+    private MatchListManager matchListManager;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    // 每 5 秒同步一次标签修改，并重新计算受影响用户的匹配列表
+    @Scheduled(fixedDelayString = "${yujian.match.maintain-delay:5000}")
+    public void doMaintainMatchList() {
+        try {
+            // 每个实例都要同步自己的匹配索引
+            matchListManager.refreshIndex();
+        } catch (Exception e) {
+            log.error("refresh match index error", e);
+        }
+        RLock lock = redissonClient.getLock(USER_MATCH_LOCK);
+        try {
+            // 只有一个实例重新计算匹配列表
+            if (lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                matchListManager.processDirtyUsers();
+            }
+        } catch (InterruptedException e) {
+            log.error("doMaintainMatchList error", e);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("process dirty match users error", e);
+        } finally {
+            // 只能释放自己的锁
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+}
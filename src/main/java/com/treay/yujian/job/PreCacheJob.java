@@ -1,117 +1,148 @@
 package com.treay.yujian.job;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.treay.yujian.mapper.UserMapper;
-import com.treay.yujian.model.domain.User;
-import com.treay.yujian.service.UserService;
+import com.treay.yujian.manager.MatchListManager;
+import com.treay.yujian.manager.RecommendRanking;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
-import static com.treay.yujian.constant.RedisConstant.USER_SEARCH_KEY;
+import static com.treay.yujian.constant.RedisConstant.PRECACHE_DONE_KEY;
+import static com.treay.yujian.constant.RedisConstant.PRECACHE_SHARD_LOCK;
+import static com.treay.yujian.constant.RedisConstant.PRECACHE_STATS_KEY;
 
 /**
  * 缓存预热任务
+ * 所有用户共用的数据（推荐排名）只由一个实例计算一次；每个用户的数据（活跃用户的匹配列表）按用户 id 分片，
+ * 各实例在 Redisson 锁下认领还没完成的分片，分批通过管道写入 Redis。
+ * 进度和耗时记录在 yujian:precache:stats:{日期} 中（shards 总分片数 / doneShards 完成分片数 / users 写入用户数 / costMillis 累计耗时）；
+ * 通过 yujian.precache.enabled 关闭
  *
  * @author Treay
- * 
+ *
  */
 @Component
 @Slf4j
+@ConditionalOnProperty(name = "yujian.precache.enabled", havingValue = "true", matchIfMissing = true)
 public class PreCacheJob {
 
+    /**
+     * 完成标记和统计保留的天数
+     */
+    private static final long RUN_KEY_TTL_DAYS = 2;
+
     @Resource
-    private UserService userService;
+    private RecommendRanking recommendRanking;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private MatchListManager matchListManager;
 
     @Resource
     private RedissonClient redissonClient;
 
     @Resource
-    private UserMapper userMapper;
+    private StringRedisTemplate stringRedisTemplate;
 
+    @Value("${yujian.precache.shard-size:10000}")
+    private long shardSize;
 
-    // 重点用户
-    private List<Long> mainUserList = Arrays.asList(1L);
+    @Value("${yujian.precache.batch-size:200}")
+    private int batchSize;
 
-    // 每天执行，预热推荐用户
+    // 每天执行，所有实例同时触发，分片完成后不会被重复执行
     @Scheduled(cron = "0 0 0 * * *")
-    public void doCacheRecommendUser() {
-        RLock lock = redissonClient.getLock("yujian:precachejob:docache:lock");
+    public void doPreCache() {
+        String runId = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
         try {
-            //只有一个线程会获取锁
-            if (lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
-                List<Long> mainUserList = new ArrayList<>();
-                //为所有用户进行用户推荐
-                List<User> list = userService.list();
-                for (User user : list) {
-                    mainUserList.add(user.getId());
-                }
-                for (Long userId : mainUserList) {
-                    //没有直接查询数据库
-                    List<User> userList = userMapper.searchAddCount();
-                    // 执行任务逻辑
-                    String key = USER_SEARCH_KEY + userId;
-                    //写缓存
-                    try {
-                        redisTemplate.opsForValue().set(key, userList, 24, TimeUnit.HOURS);
-                    } catch (Exception e) {
-                        log.error("redis set key error");
-                    }
-                }
+            // 按 addCount 重建推荐排名（排名由添加好友增量维护，这里修正累积的误差）
+            int count = recommendRanking.rebuild();
+            if (count < 0) {
+                log.info("recommend rank is being rebuilt by another instance");
             }
+        } catch (Exception e) {
+            log.error("precache recommend rank error", e);
+        }
+        try {
+            warmMatchLists(runId);
+        } catch (Exception e) {
+            log.error("precache match lists error", e);
+        }
+    }
 
-        } catch (InterruptedException e) {
-            log.error("redis set key error");
-        } finally {
-            //只能释放自己的锁
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
+    /**
+     * 按分片重新计算活跃用户的匹配列表
+     *
+     * @param runId 本次预热的编号（日期），同一天的各实例共用完成标记
+     */
+    private void warmMatchLists(String runId) {
+        long start = System.currentTimeMillis();
+        // 分片编号 => 分片内的活跃用户
+        Map<Long, List<Long>> shardMap = new TreeMap<>();
+        for (long userId : matchListManager.getActiveUserIds()) {
+            shardMap.computeIfAbsent(userId / shardSize, shard -> new ArrayList<>()).add(userId);
+        }
+        if (shardMap.isEmpty()) {
+            return;
+        }
+        String doneKey = PRECACHE_DONE_KEY + runId;
+        String statsKey = PRECACHE_STATS_KEY + runId;
+        stringRedisTemplate.opsForHash().putIfAbsent(statsKey, "shards", String.valueOf(shardMap.size()));
+        stringRedisTemplate.expire(statsKey, RUN_KEY_TTL_DAYS, TimeUnit.DAYS);
+        int shardCount = 0;
+        int userCount = 0;
+        for (Map.Entry<Long, List<Long>> entry : shardMap.entrySet()) {
+            String shard = String.valueOf(entry.getKey());
+            if (Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(doneKey, shard))) {
+                continue;
+            }
+            RLock lock = redissonClient.getLock(PRECACHE_SHARD_LOCK + runId + ":" + shard);
+            try {
+                // 其他实例正在处理的分片直接跳过
+                if (!lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                // 拿到锁时可能已经由其他实例处理完成
+                if (Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(doneKey, shard))) {
+                    continue;
+                }
+                long shardStart = System.currentTimeMillis();
+                int count = matchListManager.warmMatchLists(entry.getValue(), batchSize);
+                long cost = System.currentTimeMillis() - shardStart;
+                stringRedisTemplate.opsForSet().add(doneKey, shard);
+                stringRedisTemplate.expire(doneKey, RUN_KEY_TTL_DAYS, TimeUnit.DAYS);
+                Long doneShards = stringRedisTemplate.opsForSet().size(doneKey);
+                stringRedisTemplate.opsForHash().put(statsKey, "doneShards", String.valueOf(doneShards));
+                stringRedisTemplate.opsForHash().increment(statsKey, "users", count);
+                stringRedisTemplate.opsForHash().increment(statsKey, "costMillis", cost);
+                shardCount++;
+                userCount += count;
+                log.info("precache shard {} done, users: {}, cost: {}ms, progress: {}/{}",
+                        shard, count, cost, doneShards, shardMap.size());
+            } catch (InterruptedException e) {
+                log.error("precache match lists interrupted", e);
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                // 只能释放自己的锁
+                if (lock.isHeldByCurrentThread()) {
+                    lock.unlock();
+                }
             }
         }
-
-
-
-
-//        try {
-//            // 只有一个线程能获取到锁
-//            if (lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
-//                for (Long userId : mainUserList) {
-//                    QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-//                    Page<User> userPage = userService.page(new Page<>(1, 20), queryWrapper);
-//                    String redisKey = String.format("yujian:user:recommend:%s", userId);
-//                    ValueOperations<String, Object> valueOperations = redisTemplate.opsForValue();
-//                    // 写缓存
-//                    try {
-//                        valueOperations.set(redisKey, userPage, 30000, TimeUnit.MILLISECONDS);
-//                    } catch (Exception e) {
-//                        log.error("redis set key error", e);
-//                    }
-//                }
-//            }
-//        } catch (InterruptedException e) {
-//            log.error("doCacheRecommendUser error", e);
-//        } finally {
-//            // 只能释放自己的锁
-//            if (lock.isHeldByCurrentThread()) {
-//                System.out.println("unLock: " + Thread.currentThread().getId());
-//                lock.unlock();
-//            }
-//        }
-
+        log.info("precache match lists finished on this instance, shards: {}, users: {}, cost: {}ms",
+                shardCount, userCount, System.currentTimeMillis() - start);
     }
-
 }
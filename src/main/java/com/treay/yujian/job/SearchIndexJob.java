@@ -0,0 +1,48 @@
+package com.treay.yujian.job;
+
+import com.treay.yujian.manager.SearchBackend;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Date;
+
+/**
+ * 全文索引维护任务（每个实例维护自己的索引）
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class SearchIndexJob {
+
+    /**
+     * 同步其他实例的修改时多回看的时间，容忍事务提交延迟和时钟偏差
+     */
+    private static final long SYNC_OVERLAP_MILLIS = 60 * 1000L;
+
+    @Resource
+    private SearchBackend searchBackend;
+
+    private long lastSyncTime;
+
+    // 启动后先整体重建索引，之后每 5 秒同步一次其他实例修改的用户和队伍
+    @Scheduled(fixedDelayString = "${yujian.search.sync-delay:5000}")
+    public void doSyncSearchIndex() {
+        long now = System.currentTimeMillis();
+        try {
+            if (!searchBackend.isReady()) {
+                searchBackend.rebuild();
+            } else {
+                int count = searchBackend.refreshUpdatedSince(new Date(lastSyncTime - SYNC_OVERLAP_MILLIS));
+                if (count > 0) {
+                    log.debug("search index synced, count: {}", count);
+                }
+            }
+            lastSyncTime = now;
+        } catch (Exception e) {
+            log.error("sync search index error", e);
+        }
+    }
+}
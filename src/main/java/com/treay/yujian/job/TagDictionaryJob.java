@@ -0,0 +1,40 @@
+package com.treay.yujian.job;
+
+import com.treay.yujian.manager.TagSuggester;
+import com.treay.yujian.service.TagService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 标签字典刷新任务
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class TagDictionaryJob {
+
+    @Resource
+    private TagService tagService;
+
+    @Resource
+    private TagSuggester tagSuggester;
+
+    // 每分钟检查一次标签表，有变化时重新加载标签字典（匹配索引在下次匹配时按新版本转换标签编号），并按最新热度重建标签联想索引
+    @Scheduled(fixedDelay = 60000)
+    public void doRefreshTagDictionary() {
+        try {
+            tagService.refreshTagDictionary();
+        } catch (Exception e) {
+            log.error("refresh tag dictionary error", e);
+        }
+        try {
+            tagSuggester.refresh();
+        } catch (Exception e) {
+            log.error("refresh tag suggest index error", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.treay.yujian.job;
+
+import com.treay.yujian.service.UserFriendService;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+
+import static com.treay.yujian.constant.RedisConstant.USER_FRIEND_BACKFILL_CURSOR_KEY;
+import static com.treay.yujian.constant.RedisConstant.USER_FRIEND_BACKFILL_LOCK;
+
+/**
+ * 用户好友关系回填任务
+ * 把已有用户的 friendId JSON 写入 user_friend 表，每次只处理一批，进度保存在 Redis 中，可以中断后继续
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class UserFriendBackfillJob {
+
+    @Resource
+    private UserFriendService userFriendService;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${yujian.user-friend.backfill-enabled:false}")
+    private boolean backfillEnabled;
+
+    @Value("${yujian.user-friend.backfill-batch-size:500}")
+    private int batchSize;
+
+    // 每批之间的间隔即为限流手段
+    @Scheduled(fixedDelayString = "${yujian.user-friend.backfill-delay:10000}")
+    public void doBackfillUserFriend() {
+        if (!backfillEnabled) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(USER_FRIEND_BACKFILL_LOCK);
+        try {
+            // 只有一个实例回填
+            if (!lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            String cursor = stringRedisTemplate.opsForValue().get(USER_FRIEND_BACKFILL_CURSOR_KEY);
+            long lastUserId = cursor == null ? 0 : Long.parseLong(cursor);
+            if (lastUserId < 0) {
+                // 已回填完成
+                return;
+            }
+            long start = System.currentTimeMillis();
+            long nextUserId = userFriendService.backfillUserFriends(lastUserId, batchSize);
+            stringRedisTemplate.opsForValue().set(USER_FRIEND_BACKFILL_CURSOR_KEY, String.valueOf(nextUserId));
+            if (nextUserId < 0) {
+                log.info("user friend backfill finished");
+            } else {
+                log.info("user friend backfill progress, lastUserId: {}, cost: {}ms", nextUserId, System.currentTimeMillis() - start);
+            }
+        } catch (InterruptedException e) {
+            log.error("doBackfillUserFriend error", e);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("user friend backfill error", e);
+        } finally {
+            // 只能释放自己的锁
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+}
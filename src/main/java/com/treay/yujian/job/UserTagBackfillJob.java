@@ -0,0 +1,81 @@
+package com.treay.yujian.job;
+
+import com.treay.yujian.service.UserTagService;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+
+import static com.treay.yujian.constant.RedisConstant.USER_TAG_BACKFILL_CURSOR_KEY;
+import static com.treay.yujian.constant.RedisConstant.USER_TAG_BACKFILL_LOCK;
+
+/**
+ * 用户标签关系回填任务
+ * 把已有用户的 tags JSON 写入 user_tag 表，每次只处理一批，进度保存在 Redis 中，可以中断后继续
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class UserTagBackfillJob {
+
+    @Resource
+    private UserTagService userTagService;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${yujian.user-tag.backfill-enabled:false}")
+    private boolean backfillEnabled;
+
+    @Value("${yujian.user-tag.backfill-batch-size:500}")
+    private int batchSize;
+
+    // 每批之间的间隔即为限流手段
+    @Scheduled(fixedDelayString = "${yujian.user-tag.backfill-delay:10000}")
+    public void doBackfillUserTag() {
+        if (!backfillEnabled) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(USER_TAG_BACKFILL_LOCK);
+        try {
+            // 只有一个实例回填
+            if (!lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            String cursor = stringRedisTemplate.opsForValue().get(USER_TAG_BACKFILL_CURSOR_KEY);
+            long lastUserId = cursor == null ? 0 : Long.parseLong(cursor);
+            if (lastUserId < 0) {
+                // 已回填完成
+                return;
+            }
+            long start = System.currentTimeMillis();
+            long nextUserId = userTagService.backfillUserTags(lastUserId, batchSize);
+            stringRedisTemplate.opsForValue().set(USER_TAG_BACKFILL_CURSOR_KEY, String.valueOf(nextUserId));
+            if (nextUserId < 0) {
+                log.info("user tag backfill finished");
+            } else {
+                log.info("user tag backfill progress, lastUserId: {}, cost: {}ms", nextUserId, System.currentTimeMillis() - start);
+            }
+        } catch (InterruptedException e) {
+            log.error("doBackfillUserTag error", e);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("user tag backfill error", e);
+        } finally {
+            // 只能释放自己的锁
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.treay.yujian.manager;
+
+import com.treay.yujian.mapper.UserFriendMapper;
+import com.treay.yujian.model.domain.UserFriend;
+import com.treay.yujian.utils.FriendGraph;
+import com.treay.yujian.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Arrays;
+
+/**
+ * 内存好友图（每个实例一份）
+ * 启动后从 user_friend 表整体加载，本实例同意或删除好友时在事务提交后增量修改；
+ * 其他实例的修改在下一次整体加载时同步
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class FriendGraphManager {
+
+    /**
+     * 加载时边数组的初始容量
+     */
+    private static final int INITIAL_EDGE_CAPACITY = 1 << 16;
+
+    /**
+     * 增量修改过的用户数超过该值时合并成新的 CSR
+     */
+    @Value("${yujian.friend-graph.compact-threshold:10000}")
+    private int compactThreshold;
+
+    @Resource
+    private UserFriendMapper userFriendMapper;
+
+    private FriendGraph friendGraph;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        friendGraph = new FriendGraph(compactThreshold);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 从 user_friend 表整体加载，加载期间的增量修改会在加载完成后重放
+     *
+     * @return 边数（每对好友两条）
+     */
+    public int reload() {
+        long start = System.currentTimeMillis();
+        friendGraph.beginLoad();
+        long[][] edges = {new long[INITIAL_EDGE_CAPACITY], new long[INITIAL_EDGE_CAPACITY]};
+        int[] edgeCount = {0};
+        boolean loaded = false;
+        try {
+            userFriendMapper.scanUserFriends(resultContext -> {
+                UserFriend userFriend = resultContext.getResultObject();
+                if (edgeCount[0] == edges[0].length) {
+                    edges[0] = Arrays.copyOf(edges[0], edges[0].length << 1);
+                    edges[1] = Arrays.copyOf(edges[1], edges[1].length << 1);
+                }
+                edges[0][edgeCount[0]] = userFriend.getUserId();
+                edges[1][edgeCount[0]] = userFriend.getFriendId();
+                edgeCount[0]++;
+            });
+            friendGraph.finishLoad(edges[0], edges[1], edgeCount[0]);
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                // 加载失败时不再记录修改，避免一直累积
+                friendGraph.cancelLoad();
+            }
+        }
+        ready = true;
+        log.info("friend graph loaded, users: {}, edges: {}, cost: {}ms",
+                friendGraph.userCount(), edgeCount[0], System.currentTimeMillis() - start);
+        return edgeCount[0];
+    }
+
+    /**
+     * 互相添加好友（事务提交后执行）
+     *
+     * @param userId
+     * @param friendId
+     */
+    public void addFriend(long userId, long friendId) {
+        TransactionUtils.afterCommit(() -> friendGraph.addFriend(userId, friendId));
+    }
+
+    /**
+     * 互相删除好友（事务提交后执行）
+     *
+     * @param userId
+     * @param friendId
+     */
+    public void removeFriend(long userId, long friendId) {
+        TransactionUtils.afterCommit(() -> friendGraph.removeFriend(userId, friendId));
+    }
+
+    /**
+     * 两个用户的共同好友
+     *
+     * @param userId
+     * @param otherUserId
+     * @return 升序的共同好友 id
+     */
+    public long[] getMutualFriends(long userId, long otherUserId) {
+        return friendGraph.getMutualFriends(userId, otherUserId);
+    }
+
+    /**
+     * 可能认识的人，按共同好友数降序
+     *
+     * @param userId
+     * @param limit
+     * @param idsOut       推荐的用户 id，长度至少为 limit
+     * @param mutualCounts 对应的共同好友数，长度至少为 limit
+     * @return 推荐的用户数
+     */
+    public int suggest(long userId, int limit, long[] idsOut, int[] mutualCounts) {
+        return friendGraph.suggest(userId, limit, idsOut, mutualCounts);
+    }
+}
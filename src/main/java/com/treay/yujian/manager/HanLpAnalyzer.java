@@ -0,0 +1,110 @@
+package com.treay.yujian.manager;
+
+import com.hankcs.hanlp.HanLP;
+import com.hankcs.hanlp.dictionary.stopword.CoreStopWordDictionary;
+import com.hankcs.hanlp.seg.Segment;
+import com.hankcs.hanlp.seg.common.Term;
+import com.hankcs.hanlp.summary.TextRankKeyword;
+import com.treay.yujian.common.ErrorCode;
+import com.treay.yujian.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * HanLP 中文分词和关键词提取
+ * 分词器放在池中复用，同一时刻每个分词器只被一个线程使用；分出的词去掉停用词和标点，并按标签的规则规范化（全角转半角、小写）
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class HanLpAnalyzer {
+
+    /**
+     * 分词器数量，0 表示使用 CPU 核数
+     */
+    @Value("${yujian.search.hanlp.segment-pool-size:0}")
+    private int segmentPoolSize;
+
+    private BlockingQueue<Segment> segmentPool;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = segmentPoolSize > 0 ? segmentPoolSize : Runtime.getRuntime().availableProcessors();
+        segmentPool = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            segmentPool.add(HanLP.newSegment().enableOffset(false));
+        }
+    }
+
+    /**
+     * 分词
+     *
+     * @param text
+     * @return 规范化后的词（去重，保持出现顺序）
+     */
+    public List<String> analyze(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (Term term : segment(text)) {
+            if (!CoreStopWordDictionary.shouldInclude(term)) {
+                continue;
+            }
+            String word = TagDictionary.normalize(term.word);
+            if (word != null) {
+                words.add(word);
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * 提取关键词（TextRank）
+     *
+     * @param text
+     * @param size 最多返回的数量
+     * @return 按重要程度降序的关键词（未规范化）
+     */
+    public List<String> extractKeywords(String text, int size) {
+        if (StringUtils.isBlank(text) || size <= 0) {
+            return new ArrayList<>();
+        }
+        Segment segment = borrow();
+        try {
+            return new TextRankKeyword(segment).getKeywords(text, size);
+        } finally {
+            segmentPool.offer(segment);
+        }
+    }
+
+    private List<Term> segment(String text) {
+        if (StringUtils.isBlank(text)) {
+            return new ArrayList<>();
+        }
+        Segment segment = borrow();
+        try {
+            return segment.seg(text);
+        } finally {
+            segmentPool.offer(segment);
+        }
+    }
+
+    private Segment borrow() {
+        try {
+            return segmentPool.take();
+        } catch (InterruptedException e) {
+            log.error("borrow hanlp segment interrupted", e);
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+        }
+    }
+}
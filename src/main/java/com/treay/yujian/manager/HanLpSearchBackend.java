@@ -0,0 +1,210 @@
+package com.treay.yujian.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.treay.yujian.mapper.TeamMapper;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.model.domain.Team;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.utils.TermIndex;
+import com.treay.yujian.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 HanLP 分词的内存倒排索引（yujian.search.backend = hanlp）
+ * 用户昵称、简介和队伍名称、描述分词后写入词 => id 的倒排索引，搜索文本用同样的方式分词后求交集；
+ * 写入在事务提交后交给单独的线程分词，不占用请求线程
+ *
+ * @author Treay
+ */
+@Component
+@ConditionalOnProperty(name = "yujian.search.backend", havingValue = "hanlp")
+@Slf4j
+public class HanLpSearchBackend implements SearchBackend {
+
+    /**
+     * 名称中的词权重高于正文
+     */
+    private static final int NAME_WEIGHT = 2;
+
+    private static final int TEXT_WEIGHT = 1;
+
+    /**
+     * 分词任务队列长度，队列满时由提交任务的线程自己执行
+     */
+    private static final int INDEX_QUEUE_SIZE = 10000;
+
+    @Resource
+    private HanLpAnalyzer hanLpAnalyzer;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private TeamMapper teamMapper;
+
+    private final TermIndex userIndex = new TermIndex();
+
+    private final TermIndex teamIndex = new TermIndex();
+
+    private ThreadPoolExecutor indexExecutor;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        // 单线程按提交顺序执行，同一个用户或队伍的多次修改不会乱序
+        indexExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(INDEX_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "hanlp-search-index");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        indexExecutor.shutdown();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void indexUser(User user) {
+        long userId = user.getId();
+        String username = user.getUsername();
+        String profile = user.getProfile();
+        submit(() -> userIndex.put(userId, toTermWeights(username, profile)));
+    }
+
+    @Override
+    public void deleteUser(long userId) {
+        submit(() -> userIndex.remove(userId));
+    }
+
+    @Override
+    public void indexTeam(Team team) {
+        long teamId = team.getId();
+        String name = team.getName();
+        String description = team.getDescription();
+        submit(() -> teamIndex.put(teamId, toTermWeights(name, description)));
+    }
+
+    @Override
+    public void deleteTeam(long teamId) {
+        submit(() -> teamIndex.remove(teamId));
+    }
+
+    @Override
+    public Page<Long> searchUsers(String text, long pageNum, long pageSize) {
+        List<Long> idList = userIndex.search(hanLpAnalyzer.analyze(text));
+        Page<Long> page = new Page<>(pageNum, pageSize, idList.size());
+        long from = (pageNum - 1) * pageSize;
+        if (from >= idList.size()) {
+            page.setRecords(new ArrayList<>());
+            return page;
+        }
+        int to = (int) Math.min(from + pageSize, idList.size());
+        page.setRecords(new ArrayList<>(idList.subList((int) from, to)));
+        return page;
+    }
+
+    @Override
+    public Page<Long> searchTeams(String text, long pageNum, long pageSize) {
+        List<Long> idList = teamIndex.search(hanLpAnalyzer.analyze(text));
+        Page<Long> page = new Page<>(pageNum, pageSize, idList.size());
+        long from = (pageNum - 1) * pageSize;
+        if (from >= idList.size()) {
+            page.setRecords(new ArrayList<>());
+            return page;
+        }
+        int to = (int) Math.min(from + pageSize, idList.size());
+        page.setRecords(new ArrayList<>(idList.subList((int) from, to)));
+        return page;
+    }
+
+    @Override
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        int[] userCount = {0};
+        userMapper.scanUserText(resultContext -> {
+            User user = resultContext.getResultObject();
+            userIndex.put(user.getId(), toTermWeights(user.getUsername(), user.getProfile()));
+            userCount[0]++;
+        });
+        QueryWrapper<Team> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "name", "description");
+        List<Team> teamList = teamMapper.selectList(queryWrapper);
+        for (Team team : teamList) {
+            teamIndex.put(team.getId(), toTermWeights(team.getName(), team.getDescription()));
+        }
+        ready = true;
+        log.info("hanlp search index rebuilt, users: {}, teams: {}, cost: {}ms",
+                userCount[0], teamList.size(), System.currentTimeMillis() - start);
+        return userCount[0] + teamList.size();
+    }
+
+    @Override
+    public int refreshUpdatedSince(Date since) {
+        List<User> userList = userMapper.listUserTextUpdatedSince(since);
+        for (User user : userList) {
+            if (user.getIsDelete() != null && user.getIsDelete() == 1) {
+                userIndex.remove(user.getId());
+            } else {
+                userIndex.put(user.getId(), toTermWeights(user.getUsername(), user.getProfile()));
+            }
+        }
+        List<Team> teamList = teamMapper.listTeamTextUpdatedSince(since);
+        for (Team team : teamList) {
+            if (team.getIsDelete() != null && team.getIsDelete() == 1) {
+                teamIndex.remove(team.getId());
+            } else {
+                teamIndex.put(team.getId(), toTermWeights(team.getName(), team.getDescription()));
+            }
+        }
+        return userList.size() + teamList.size();
+    }
+
+    /**
+     * 名称和正文分词，同一个词同时出现在两者中时权重相加
+     */
+    private Map<String, Integer> toTermWeights(String name, String text) {
+        Map<String, Integer> termWeights = new HashMap<>();
+        for (String term : hanLpAnalyzer.analyze(name)) {
+            termWeights.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : hanLpAnalyzer.analyze(text)) {
+            termWeights.merge(term, TEXT_WEIGHT, Integer::sum);
+        }
+        return termWeights;
+    }
+
+    private void submit(Runnable task) {
+        TransactionUtils.afterCommit(() -> indexExecutor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("hanlp search index error", e);
+            }
+        }));
+    }
+}
@@ -0,0 +1,182 @@
+package com.treay.yujian.manager;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.model.vo.TokenCacheStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.treay.yujian.constant.RedisConstant.TOKEN_INVALIDATE_TOPIC;
+import static com.treay.yujian.constant.RedisConstant.TOKEN_KEY;
+
+/**
+ * 登录令牌两级缓存：本地 LRU 缓存（容量和过期时间有上限）+ Redis 中的令牌
+ * 令牌对应的用户被刷新或注销时，通过 Redis 发布订阅通知所有实例删除本地缓存；
+ * 通知丢失时本地缓存最多在过期时间后失效。
+ * 签名令牌模式下按用户 id 缓存，缓存未命中时从数据库加载
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class LoginUserCache {
+
+    /**
+     * 本地缓存的令牌数上限
+     */
+    @Value("${yujian.token-cache.size:10000}")
+    private int cacheSize;
+
+    /**
+     * 本地缓存的过期时间（秒），从放入缓存时开始计算
+     */
+    @Value("${yujian.token-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    private LRUCache<String, User> cache;
+
+    private RTopic invalidateTopic;
+
+    private int listenerId;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder invalidationCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = CacheUtil.newLRUCache(cacheSize, TimeUnit.SECONDS.toMillis(ttlSeconds));
+        invalidateTopic = redissonClient.getTopic(TOKEN_INVALIDATE_TOPIC);
+        listenerId = invalidateTopic.addListener(String.class, (channel, cacheKey) -> {
+            cache.remove(cacheKey);
+            invalidationCount.increment();
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        invalidateTopic.removeListener(listenerId);
+    }
+
+    /**
+     * 读取令牌对应的登录用户，先查本地缓存，没有时查询 Redis
+     *
+     * @param userAccount
+     * @param uuid
+     * @return 未登录时返回 null；返回的是副本，调用方可以修改
+     */
+    public User get(String userAccount, String uuid) {
+        String cacheKey = cacheKey(userAccount, uuid);
+        // 不刷新访问时间，过期时间从放入时计算
+        User user = cache.get(cacheKey, false);
+        if (user != null) {
+            hitCount.increment();
+            return copy(user);
+        }
+        missCount.increment();
+        user = (User) redisTemplate.opsForHash().get(TOKEN_KEY + uuid, userAccount);
+        if (user != null) {
+            cache.put(cacheKey, user);
+            return copy(user);
+        }
+        return null;
+    }
+
+    /**
+     * 读取签名令牌对应的用户，先查本地缓存，没有时通过 loader 加载
+     *
+     * @param userId
+     * @param loader 加载脱敏后的用户，用户不存在时返回 null
+     * @return 用户不存在时返回 null；返回的是副本，调用方可以修改
+     */
+    public User getUser(long userId, Function<Long, User> loader) {
+        String cacheKey = userCacheKey(userId);
+        User user = cache.get(cacheKey, false);
+        if (user != null) {
+            hitCount.increment();
+            return copy(user);
+        }
+        missCount.increment();
+        user = loader.apply(userId);
+        if (user != null) {
+            cache.put(cacheKey, user);
+            return copy(user);
+        }
+        return null;
+    }
+
+    /**
+     * 通知所有实例删除用户的本地缓存（签名令牌模式下用户信息已更新或已注销）
+     *
+     * @param userId
+     */
+    public void invalidateUser(long userId) {
+        publishInvalidation(userCacheKey(userId));
+    }
+
+    /**
+     * 通知所有实例删除令牌的本地缓存（令牌中的用户信息已更新或令牌已删除）
+     *
+     * @param userAccount
+     * @param uuid
+     */
+    public void invalidate(String userAccount, String uuid) {
+        publishInvalidation(cacheKey(userAccount, uuid));
+    }
+
+    private void publishInvalidation(String cacheKey) {
+        cache.remove(cacheKey);
+        try {
+            invalidateTopic.publish(cacheKey);
+        } catch (Exception e) {
+            log.error("publish token invalidation error", e);
+        }
+    }
+
+    public TokenCacheStatsVO getStats() {
+        TokenCacheStatsVO tokenCacheStatsVO = new TokenCacheStatsVO();
+        long hits = hitCount.sum();
+        long misses = missCount.sum();
+        tokenCacheStatsVO.setHitCount(hits);
+        tokenCacheStatsVO.setMissCount(misses);
+        tokenCacheStatsVO.setHitRate(hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        tokenCacheStatsVO.setInvalidationCount(invalidationCount.sum());
+        tokenCacheStatsVO.setSize(cache.size());
+        return tokenCacheStatsVO;
+    }
+
+    private static String cacheKey(String userAccount, String uuid) {
+        return uuid + ":" + userAccount;
+    }
+
+    private static String userCacheKey(long userId) {
+        return "user:" + userId;
+    }
+
+    private static User copy(User user) {
+        User copyUser = new User();
+        BeanUtils.copyProperties(user, copyUser);
+        return copyUser;
+    }
+}
@@ -0,0 +1,360 @@
+package com.treay.yujian.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.treay.yujian.common.ErrorCode;
+import com.treay.yujian.exception.BusinessException;
+import com.treay.yujian.mapper.TeamMapper;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.model.domain.Team;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 进程内 Lucene 全文搜索（默认实现，不依赖外部搜索集群）
+ * 索引保存在内存中，启动后由 SearchIndexJob 从数据库重建；中文按二元组（bigram）切分，英文按单词切分并转小写。
+ * 写入后最多 1 秒内可以搜到（近实时）
+ *
+ * @author Treay
+ */
+@Component
+@ConditionalOnProperty(name = "yujian.search.backend", havingValue = "lucene", matchIfMissing = true)
+@Slf4j
+public class LuceneSearchBackend implements SearchBackend {
+
+    private static final String TYPE_USER = "user";
+
+    private static final String TYPE_TEAM = "team";
+
+    /**
+     * 文档字段：类型 / 类型 + id（用于更新和删除）/ id / 名称（用户昵称、队伍名称）/ 正文（用户简介、队伍描述）
+     */
+    private static final String FIELD_TYPE = "type";
+
+    private static final String FIELD_KEY = "key";
+
+    private static final String FIELD_ID = "id";
+
+    private static final String FIELD_NAME = "name";
+
+    private static final String FIELD_TEXT = "text";
+
+    /**
+     * 名称命中的权重高于正文
+     */
+    private static final float NAME_BOOST = 2.0f;
+
+    /**
+     * 搜索文本最多取前多少个词
+     */
+    private static final int MAX_QUERY_TERMS = 32;
+
+    /**
+     * 分页最多翻到第多少条
+     */
+    private static final int MAX_WINDOW = 10000;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private TeamMapper teamMapper;
+
+    private Analyzer analyzer;
+
+    private IndexWriter indexWriter;
+
+    private SearcherManager searcherManager;
+
+    private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() throws IOException {
+        analyzer = new CJKAnalyzer();
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        indexWriter = new IndexWriter(new ByteBuffersDirectory(), config);
+        searcherManager = new SearcherManager(indexWriter, null);
+        // 后台线程定期打开新的 searcher，写入后最迟 1 秒可见
+        reopenThread = new ControlledRealTimeReopenThread<>(indexWriter, searcherManager, 1.0, 0.1);
+        reopenThread.setName("lucene-search-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        indexWriter.close();
+        analyzer.close();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void indexUser(User user) {
+        long userId = user.getId();
+        Document document = newDocument(TYPE_USER, userId, user.getUsername(), user.getProfile());
+        TransactionUtils.afterCommit(() -> updateDocument(TYPE_USER, userId, document));
+    }
+
+    @Override
+    public void deleteUser(long userId) {
+        TransactionUtils.afterCommit(() -> deleteDocument(TYPE_USER, userId));
+    }
+
+    @Override
+    public void indexTeam(Team team) {
+        long teamId = team.getId();
+        Document document = newDocument(TYPE_TEAM, teamId, team.getName(), team.getDescription());
+        TransactionUtils.afterCommit(() -> updateDocument(TYPE_TEAM, teamId, document));
+    }
+
+    @Override
+    public void deleteTeam(long teamId) {
+        TransactionUtils.afterCommit(() -> deleteDocument(TYPE_TEAM, teamId));
+    }
+
+    @Override
+    public Page<Long> searchUsers(String text, long pageNum, long pageSize) {
+        Page<Long> page = new Page<>(pageNum, pageSize, 0);
+        page.setRecords(new ArrayList<>());
+        Query query = buildQuery(TYPE_USER, text);
+        if (query == null) {
+            return page;
+        }
+        long from = (pageNum - 1) * pageSize;
+        IndexSearcher searcher = acquire();
+        try {
+            page.setTotal(searcher.count(query));
+            if (from >= page.getTotal() || from + pageSize > MAX_WINDOW) {
+                return page;
+            }
+            TopDocs topDocs = searcher.search(query, (int) (from + pageSize));
+            page.setRecords(toIds(searcher, topDocs, (int) from));
+            return page;
+        } catch (IOException e) {
+            log.error("lucene search users error", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @Override
+    public Page<Long> searchTeams(String text, long pageNum, long pageSize) {
+        Page<Long> page = new Page<>(pageNum, pageSize, 0);
+        page.setRecords(new ArrayList<>());
+        Query query = buildQuery(TYPE_TEAM, text);
+        if (query == null) {
+            return page;
+        }
+        long from = (pageNum - 1) * pageSize;
+        IndexSearcher searcher = acquire();
+        try {
+            page.setTotal(searcher.count(query));
+            if (from >= page.getTotal() || from + pageSize > MAX_WINDOW) {
+                return page;
+            }
+            TopDocs topDocs = searcher.search(query, (int) (from + pageSize));
+            page.setRecords(toIds(searcher, topDocs, (int) from));
+            return page;
+        } catch (IOException e) {
+            log.error("lucene search teams error", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @Override
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        // 按 key 覆盖写入，不会和重建期间的实时写入产生重复文档
+        int[] userCount = {0};
+        userMapper.scanUserText(resultContext -> {
+            User user = resultContext.getResultObject();
+            updateDocument(TYPE_USER, user.getId(), newDocument(TYPE_USER, user.getId(), user.getUsername(), user.getProfile()));
+            userCount[0]++;
+        });
+        QueryWrapper<Team> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "name", "description");
+        List<Team> teamList = teamMapper.selectList(queryWrapper);
+        for (Team team : teamList) {
+            updateDocument(TYPE_TEAM, team.getId(), newDocument(TYPE_TEAM, team.getId(), team.getName(), team.getDescription()));
+        }
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ready = true;
+        log.info("lucene search index rebuilt, users: {}, teams: {}, cost: {}ms",
+                userCount[0], teamList.size(), System.currentTimeMillis() - start);
+        return userCount[0] + teamList.size();
+    }
+
+    @Override
+    public int refreshUpdatedSince(Date since) {
+        List<User> userList = userMapper.listUserTextUpdatedSince(since);
+        for (User user : userList) {
+            if (isDeleted(user.getIsDelete())) {
+                deleteDocument(TYPE_USER, user.getId());
+            } else {
+                updateDocument(TYPE_USER, user.getId(), newDocument(TYPE_USER, user.getId(), user.getUsername(), user.getProfile()));
+            }
+        }
+        List<Team> teamList = teamMapper.listTeamTextUpdatedSince(since);
+        for (Team team : teamList) {
+            if (isDeleted(team.getIsDelete())) {
+                deleteDocument(TYPE_TEAM, team.getId());
+            } else {
+                updateDocument(TYPE_TEAM, team.getId(), newDocument(TYPE_TEAM, team.getId(), team.getName(), team.getDescription()));
+            }
+        }
+        return userList.size() + teamList.size();
+    }
+
+    /**
+     * 搜索文本切词后，每个词都要在名称或正文中出现（词本身或以该词开头的词），名称命中的得分更高
+     *
+     * @return 切不出词时返回 null
+     */
+    private Query buildQuery(String type, String text) {
+        if (StringUtils.isBlank(text)) {
+            return null;
+        }
+        Set<String> terms = analyze(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new TermQuery(new Term(FIELD_TYPE, type)), BooleanClause.Occur.FILTER);
+        for (String term : terms) {
+            BooleanQuery.Builder termBuilder = new BooleanQuery.Builder();
+            termBuilder.add(new BoostQuery(new TermQuery(new Term(FIELD_NAME, term)), NAME_BOOST), BooleanClause.Occur.SHOULD);
+            termBuilder.add(new TermQuery(new Term(FIELD_TEXT, term)), BooleanClause.Occur.SHOULD);
+            termBuilder.add(new PrefixQuery(new Term(FIELD_NAME, term)), BooleanClause.Occur.SHOULD);
+            termBuilder.add(new PrefixQuery(new Term(FIELD_TEXT, term)), BooleanClause.Occur.SHOULD);
+            builder.add(termBuilder.build(), BooleanClause.Occur.MUST);
+        }
+        return builder.build();
+    }
+
+    private Set<String> analyze(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        try (TokenStream tokenStream = analyzer.tokenStream(FIELD_TEXT, text)) {
+            CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(termAttribute.toString());
+            }
+            tokenStream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private Document newDocument(String type, long id, String name, String text) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_TYPE, type, Field.Store.NO));
+        document.add(new StringField(FIELD_KEY, type + ":" + id, Field.Store.NO));
+        document.add(new StoredField(FIELD_ID, id));
+        document.add(new TextField(FIELD_NAME, StringUtils.defaultString(name), Field.Store.NO));
+        document.add(new TextField(FIELD_TEXT, StringUtils.defaultString(text), Field.Store.NO));
+        return document;
+    }
+
+    private void updateDocument(String type, long id, Document document) {
+        try {
+            indexWriter.updateDocument(new Term(FIELD_KEY, type + ":" + id), document);
+        } catch (IOException e) {
+            log.error("lucene update document error, {}:{}", type, id, e);
+        }
+    }
+
+    private void deleteDocument(String type, long id) {
+        try {
+            indexWriter.deleteDocuments(new Term(FIELD_KEY, type + ":" + id));
+        } catch (IOException e) {
+            log.error("lucene delete document error, {}:{}", type, id, e);
+        }
+    }
+
+    private List<Long> toIds(IndexSearcher searcher, TopDocs topDocs, int from) throws IOException {
+        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        List<Long> idList = new ArrayList<>(Math.max(scoreDocs.length - from, 0));
+        for (int i = from; i < scoreDocs.length; i++) {
+            Document document = searcher.doc(scoreDocs[i].doc);
+            idList.add(document.getField(FIELD_ID).numericValue().longValue());
+        }
+        return idList;
+    }
+
+    private IndexSearcher acquire() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException e) {
+            log.error("lucene acquire searcher error", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+        }
+    }
+
+    private void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.error("lucene release searcher error", e);
+        }
+    }
+
+    private static boolean isDeleted(Integer isDelete) {
+        return isDelete != null && isDelete == 1;
+    }
+}
@@ -0,0 +1,883 @@
+package com.treay.yujian.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.model.dto.MatchListDTO;
+import com.treay.yujian.service.TagService;
+import com.treay.yujian.utils.AlgorithmUtils;
+import com.treay.yujian.utils.TopKHeap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 用户匹配索引（常驻内存）
+ * 标签名统一由标签字典转换为 int 编号（同义词归并），每个用户的标签保存为按标签名排序的 int 数组，
+ * 匹配时直接在数组上计算编辑距离，不再解析 JSON、不再比较字符串；
+ * 同时维护标签 => 用户槽位的倒排表，只对与当前用户至少有一个相同标签的用户计算距离；
+ * 用户量极大时可以用 MinHash LSH 做近似匹配，只对落入相同桶的用户计算距离
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class MatchIndex {
+
+    private static final Type TAG_LIST_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * 并行计算时每个分片的最小大小
+     */
+    private static final int MIN_CHUNK_SIZE = 4096;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private TagService tagService;
+
+    /**
+     * 相似度计算方式：plain 只比较标签是否相同，hierarchy 对父子、兄弟标签给部分分
+     */
+    @Value("${yujian.match.similarity:plain}")
+    private String similarity;
+
+    /**
+     * 匹配线程池大小，0 表示使用 CPU 核数
+     */
+    @Value("${yujian.match.parallelism:0}")
+    private int parallelism;
+
+    /**
+     * 候选用户数达到该阈值才并行计算
+     */
+    @Value("${yujian.match.parallel-threshold:50000}")
+    private int parallelThreshold;
+
+    /**
+     * 候选用户少于该数量（且少于返回数量）时，用没有相同标签的用户补足
+     */
+    @Value("${yujian.match.min-candidates:0}")
+    private int minCandidates;
+
+    /**
+     * 近似匹配 LSH 的 band 数和每个 band 的行数
+     */
+    @Value("${yujian.match.lsh.bands:16}")
+    private int lshBands;
+
+    @Value("${yujian.match.lsh.rows:2}")
+    private int lshRows;
+
+    private volatile MinHashLsh lsh;
+
+    private ForkJoinPool matchPool;
+
+    private final Gson gson = new Gson();
+
+    /**
+     * 索引中标签编号对应的标签字典版本，字典版本变化（同义词、父标签、展示名变化）时重新转换所有用户的标签编号
+     */
+    private volatile long dictionaryVersion;
+
+    /**
+     * 用户 id => 槽位
+     */
+    private final Map<Long, Integer> slotMap = new ConcurrentHashMap<>();
+
+    /**
+     * 槽位 => 用户 id / 用户标签（null 表示无标签，不参与匹配）
+     * 只在持有锁时写，读时先读 size 再读数组，保证读到的槽位都已写好
+     */
+    private volatile long[] userIds = new long[INITIAL_CAPACITY];
+
+    private volatile int[][] userTags = new int[INITIAL_CAPACITY][];
+
+    private volatile int size;
+
+    /**
+     * 倒排表：标签编号 => 拥有该标签的用户槽位
+     * 只追加不删除，用户去掉某个标签后旧记录保留（候选多算一次距离，不影响结果），过期记录过多时在后台整体重建
+     */
+    private volatile SlotPosting[] postings = new SlotPosting[INITIAL_CAPACITY];
+
+    private int stalePostingCount;
+
+    /**
+     * 重建倒排表的单独线程，不占用修改标签的请求线程
+     */
+    private ExecutorService compactExecutor;
+
+    /**
+     * 是否正在后台重建倒排表，以及重建期间有变化的槽位（替换前补进新的倒排表），只在持有锁时读写
+     */
+    private boolean compacting;
+
+    private final BitSet compactChangedSlots = new BitSet();
+
+    private volatile boolean loaded;
+
+    /**
+     * 匹配与当前标签最相似的用户
+     *
+     * @param loginUserId 当前用户 id（不会出现在结果中）
+     * @param tags        当前用户标签 JSON
+     * @param num         返回数量
+     * @return 按相似度从高到低排列的用户 id
+     */
+    public long[] match(long loginUserId, String tags, int num) {
+        ensureLoaded();
+        int[] loginTagIds = toTagIds(tags);
+        if (loginTagIds == null || num <= 0) {
+            return new long[0];
+        }
+        return topK(loginUserId, loginTagIds, num).drainSortedIds();
+    }
+
+    /**
+     * 按索引中保存的用户标签计算该用户的匹配列表（用于后台维护预计算的匹配列表）
+     *
+     * @param userId 用户 id（不会出现在结果中）
+     * @param num    返回数量
+     * @return 用户不存在或没有标签时返回空列表
+     */
+    public MatchListDTO matchList(long userId, int num) {
+        ensureLoaded();
+        int[] loginTagIds = tagsOf(userId);
+        long[] matchUserIds = new long[0];
+        int[] scores = new int[0];
+        if (loginTagIds != null && num > 0) {
+            TopKHeap heap = topK(userId, loginTagIds, num);
+            matchUserIds = new long[heap.size()];
+            scores = new int[heap.size()];
+            heap.drainSorted(matchUserIds, scores);
+        }
+        MatchListDTO matchListDTO = new MatchListDTO();
+        matchListDTO.setUserIds(matchUserIds);
+        matchListDTO.setScores(scores);
+        matchListDTO.setUpdateTime(System.currentTimeMillis());
+        return matchListDTO;
+    }
+
+    private TopKHeap topK(long loginUserId, int[] loginTagIds, int num) {
+        int total = size;
+        long[] ids = userIds;
+        int[][] tagArrays = userTags;
+        int[] parents = parentTagIds();
+        int[] candidates = candidates(loginUserId, loginTagIds, parents, ids, tagArrays, total, num);
+        int capacity = Math.min(num, candidates.length);
+        if (candidates.length < parallelThreshold) {
+            return score(loginTagIds, ids, tagArrays, parents, candidates, 0, candidates.length, capacity);
+        }
+        // 候选集较大时拆分成多个分片并行计算，每个分片各自维护 topN 堆，最后合并
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, candidates.length / (matchPool.getParallelism() * 4));
+        return matchPool.invoke(new ScoreTask(loginTagIds, ids, tagArrays, parents, candidates, 0, candidates.length, capacity, chunkSize));
+    }
+
+    /**
+     * 找出某个用户修改标签后匹配结果可能受影响的用户：与其旧标签或新标签至少有一个相同标签（hierarchy 模式下包括父子、兄弟标签）
+     * 只遍历这些标签的倒排表，不遍历 userIds
+     *
+     * @param userIds       待检查的用户 id（如活跃用户），按 id 升序
+     * @param changedUserId 修改了标签的用户 id，新标签取索引中的当前值
+     * @param oldTags       修改前的标签 JSON
+     * @return userIds 中受影响的用户 id（不含 changedUserId 本身）
+     */
+    public long[] affectedUsers(long[] userIds, long changedUserId, String oldTags) {
+        ensureLoaded();
+        int[] newTagIds = tagsOf(changedUserId);
+        int[] oldTagIds = toTagIds(oldTags);
+        int total = size;
+        long[] ids = this.userIds;
+        int[][] tagArrays = userTags;
+        int[] parents = parentTagIds();
+        SlotPosting[] postingArray = postings;
+        BitSet slotSet = new BitSet(total);
+        collectRelatedPostings(postingArray, oldTagIds, parents, total, slotSet);
+        collectRelatedPostings(postingArray, newTagIds, parents, total, slotSet);
+        long[] affected = new long[Math.min(userIds.length, slotSet.cardinality())];
+        int count = 0;
+        for (int slot = slotSet.nextSetBit(0); slot >= 0 && count < affected.length; slot = slotSet.nextSetBit(slot + 1)) {
+            int[] tagIds = tagArrays[slot];
+            if (tagIds == null || ids[slot] == changedUserId || Arrays.binarySearch(userIds, ids[slot]) < 0) {
+                continue;
+            }
+            // 倒排表中有过期记录，按当前标签核对
+            if (isRelated(tagIds, newTagIds, parents) || isRelated(tagIds, oldTagIds, parents)) {
+                affected[count++] = ids[slot];
+            }
+        }
+        return Arrays.copyOf(affected, count);
+    }
+
+    /**
+     * otherUserId 在 userId 的匹配列表中的分数（标签编辑距离），用于增量维护预计算的匹配列表
+     *
+     * @param userId
+     * @param otherUserId
+     * @return otherUserId 不是 userId 的候选用户（任一方没有标签，或没有相同标签，hierarchy 模式下也没有父子、兄弟标签）时返回 -1
+     */
+    public int matchScore(long userId, long otherUserId) {
+        ensureLoaded();
+        int[] tagIds = tagsOf(userId);
+        int[] otherTagIds = tagsOf(otherUserId);
+        if (userId == otherUserId || tagIds == null || otherTagIds == null) {
+            return -1;
+        }
+        int[] parents = parentTagIds();
+        // 没有标签的用户以所有用户为候选，见 candidates
+        if (tagIds.length > 0 && !isRelated(tagIds, otherTagIds, parents)) {
+            return -1;
+        }
+        return parents == null
+                ? AlgorithmUtils.minDistance(tagIds, otherTagIds)
+                : AlgorithmUtils.hierarchyMinDistance(tagIds, otherTagIds, Integer.MAX_VALUE, parents);
+    }
+
+    /**
+     * 两组标签是否有相同标签（hierarchy 模式下包括父子、兄弟标签）
+     */
+    private static boolean isRelated(int[] tagIds, int[] otherTagIds, int[] parents) {
+        if (otherTagIds == null) {
+            return false;
+        }
+        for (int tagId : tagIds) {
+            for (int otherTagId : otherTagIds) {
+                if (tagId == otherTagId || (parents != null && AlgorithmUtils.isRelatedTag(tagId, otherTagId, parents))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int[] tagsOf(long userId) {
+        Integer slot = slotMap.get(userId);
+        return slot == null ? null : userTags[slot];
+    }
+
+    /**
+     * 近似匹配：只对与当前用户落入相同 LSH 桶的用户计算准确的编辑距离
+     *
+     * @param loginUserId 当前用户 id（不会出现在结果中）
+     * @param tags        当前用户标签 JSON
+     * @param num         返回数量
+     * @param recall      召回率要求 (0, 1]，决定探测的 band 数，越大越准确、耗时越长
+     * @return 按相似度从高到低排列的用户 id
+     */
+    public long[] matchApproximate(long loginUserId, String tags, int num, double recall) {
+        ensureLoaded();
+        int[] loginTagIds = toTagIds(tags);
+        if (loginTagIds == null || num <= 0) {
+            return new long[0];
+        }
+        int total = size;
+        long[] ids = userIds;
+        int[][] tagArrays = userTags;
+        BitSet candidateSet = new BitSet(total);
+        MinHashLsh currentLsh = lsh;
+        currentLsh.collect(loginTagIds, (int) Math.ceil(recall * currentLsh.bands()), total, candidateSet);
+        int candidateCount = 0;
+        for (int slot = candidateSet.nextSetBit(0); slot >= 0; slot = candidateSet.nextSetBit(slot + 1)) {
+            if (tagArrays[slot] != null && ids[slot] != loginUserId) {
+                candidateCount++;
+            }
+        }
+        // 桶内用户不够，退回准确匹配
+        if (candidateCount < num) {
+            return match(loginUserId, tags, num);
+        }
+        int[] candidates = new int[candidateCount];
+        int index = 0;
+        for (int slot = candidateSet.nextSetBit(0); slot >= 0; slot = candidateSet.nextSetBit(slot + 1)) {
+            if (tagArrays[slot] != null && ids[slot] != loginUserId) {
+                candidates[index++] = slot;
+            }
+        }
+        return score(loginTagIds, ids, tagArrays, parentTagIds(), candidates, 0, candidates.length, num).drainSortedIds();
+    }
+
+    /**
+     * 生成候选用户槽位：当前用户各标签（hierarchy 模式下包括父子、兄弟标签）倒排表的并集，不足时用其余用户补足
+     *
+     * @return 按槽位升序排列的候选槽位（不含当前用户和无标签用户）
+     */
+    private int[] candidates(long loginUserId, int[] loginTagIds, int[] parents, long[] ids, int[][] tagArrays, int total, int num) {
+        BitSet candidateSet = new BitSet(total);
+        collectRelatedPostings(postings, loginTagIds, parents, total, candidateSet);
+        int candidateCount = 0;
+        for (int slot = candidateSet.nextSetBit(0); slot >= 0; slot = candidateSet.nextSetBit(slot + 1)) {
+            if (tagArrays[slot] == null || ids[slot] == loginUserId) {
+                candidateSet.clear(slot);
+            } else {
+                candidateCount++;
+            }
+        }
+        // 有相同标签的用户太少，用其余用户补足；当前用户没有标签时所有用户都是候选
+        int target = loginTagIds.length == 0 ? total : Math.max(num, minCandidates);
+        for (int slot = 0; slot < total && candidateCount < target; slot++) {
+            if (!candidateSet.get(slot) && tagArrays[slot] != null && ids[slot] != loginUserId) {
+                candidateSet.set(slot);
+                candidateCount++;
+            }
+        }
+        int[] candidates = new int[candidateCount];
+        int index = 0;
+        for (int slot = candidateSet.nextSetBit(0); slot >= 0 && index < candidateCount; slot = candidateSet.nextSetBit(slot + 1)) {
+            candidates[index++] = slot;
+        }
+        return candidates;
+    }
+
+    /**
+     * 收集给定标签（hierarchy 模式下包括父子、兄弟标签）倒排表中的槽位
+     */
+    private static void collectRelatedPostings(SlotPosting[] postingArray, int[] tagIds, int[] parents, int total, BitSet slotSet) {
+        if (tagIds == null) {
+            return;
+        }
+        if (parents == null) {
+            for (int i = 0; i < tagIds.length; i++) {
+                // 标签已按名称排序，相同标签相邻
+                if (i == 0 || tagIds[i] != tagIds[i - 1]) {
+                    collectPosting(postingArray, tagIds[i], total, slotSet);
+                }
+            }
+            return;
+        }
+        // 标签总数很少（几百个），直接遍历所有标签找出与给定标签有关的
+        int tagCount = postingArray.length;
+        for (int tagId = 0; tagId < tagCount; tagId++) {
+            for (int otherTagId : tagIds) {
+                if (tagId == otherTagId || AlgorithmUtils.isRelatedTag(tagId, otherTagId, parents)) {
+                    collectPosting(postingArray, tagId, total, slotSet);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void collectPosting(SlotPosting[] postingArray, int tagId, int total, BitSet candidateSet) {
+        if (tagId >= postingArray.length || postingArray[tagId] == null) {
+            return;
+        }
+        SlotPosting posting = postingArray[tagId];
+        int postingSize = posting.size;
+        int[] slots = posting.slots;
+        for (int j = 0; j < postingSize; j++) {
+            if (slots[j] < total) {
+                candidateSet.set(slots[j]);
+            }
+        }
+    }
+
+    /**
+     * 计算 candidates[from, to) 中的候选用户，返回保留了 topN 的堆
+     */
+    private static TopKHeap score(int[] loginTagIds, long[] ids, int[][] tagArrays, int[] parents,
+                                  int[] candidates, int from, int to, int capacity) {
+        TopKHeap heap = new TopKHeap(capacity);
+        for (int i = from; i < to; i++) {
+            int slot = candidates[i];
+            int[] candidateTagIds = tagArrays[slot];
+            if (candidateTagIds == null) {
+                continue;
+            }
+            // 堆满后只关心比堆顶更小的距离，超过上界即可提前结束计算
+            int bound = heap.isFull() ? heap.worstScore() - 1 : Integer.MAX_VALUE;
+            int distance = parents == null
+                    ? AlgorithmUtils.minDistance(loginTagIds, candidateTagIds, bound)
+                    : AlgorithmUtils.hierarchyMinDistance(loginTagIds, candidateTagIds, bound, parents);
+            if (distance <= bound) {
+                heap.offer(ids[slot], distance);
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * 并行匹配任务：区间超过分片大小时一分为二，否则顺序计算
+     */
+    private static class ScoreTask extends RecursiveTask<TopKHeap> {
+
+        private final int[] loginTagIds;
+
+        private final long[] ids;
+
+        private final int[][] tagArrays;
+
+        private final int[] parents;
+
+        private final int[] candidates;
+
+        private final int from;
+
+        private final int to;
+
+        private final int capacity;
+
+        private final int chunkSize;
+
+        ScoreTask(int[] loginTagIds, long[] ids, int[][] tagArrays, int[] parents, int[] candidates,
+                  int from, int to, int capacity, int chunkSize) {
+            this.loginTagIds = loginTagIds;
+            this.ids = ids;
+            this.tagArrays = tagArrays;
+            this.parents = parents;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.capacity = capacity;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected TopKHeap compute() {
+            if (to - from <= chunkSize) {
+                return score(loginTagIds, ids, tagArrays, parents, candidates, from, to, capacity);
+            }
+            int mid = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(loginTagIds, ids, tagArrays, parents, candidates, from, mid, capacity, chunkSize);
+            ScoreTask right = new ScoreTask(loginTagIds, ids, tagArrays, parents, candidates, mid, to, capacity, chunkSize);
+            left.fork();
+            TopKHeap heap = right.compute();
+            heap.offerAll(left.join());
+            return heap;
+        }
+    }
+
+    /**
+     * 按标签精确搜索用户：同时拥有所有给定标签的用户
+     * 只遍历最短的倒排表，再逐个核对用户当前的标签（倒排表中可能有过期或重复记录）
+     *
+     * @param tagNameList 标签名（完全相同才算匹配）
+     * @return 按用户 id 升序排列的用户 id
+     */
+    public long[] searchByTags(Collection<String> tagNameList) {
+        ensureLoaded();
+        if (tagNameList == null || tagNameList.isEmpty()) {
+            return new long[0];
+        }
+        int[] tagIds = new int[tagNameList.size()];
+        int tagCount = 0;
+        SlotPosting[] postingArray = postings;
+        SlotPosting shortest = null;
+        TagDictionary tagDictionary = tagService.getTagDictionary();
+        for (String tagName : tagNameList) {
+            // 同义词、大小写不同的标签按同一个标签搜索
+            int tagId = tagDictionary.find(tagName);
+            if (tagId < 0 || tagId >= postingArray.length || postingArray[tagId] == null) {
+                // 没有任何用户有这个标签
+                return new long[0];
+            }
+            tagIds[tagCount++] = tagId;
+            if (shortest == null || postingArray[tagId].size < shortest.size) {
+                shortest = postingArray[tagId];
+            }
+        }
+        int total = size;
+        long[] ids = userIds;
+        int[][] tagArrays = userTags;
+        int postingSize = shortest.size;
+        int[] slots = shortest.slots;
+        BitSet resultSet = new BitSet(total);
+        for (int i = 0; i < postingSize; i++) {
+            int slot = slots[i];
+            if (slot >= total || resultSet.get(slot)) {
+                continue;
+            }
+            int[] userTagIds = tagArrays[slot];
+            boolean containsAll = userTagIds != null;
+            for (int j = 0; j < tagCount && containsAll; j++) {
+                containsAll = contains(userTagIds, tagIds[j]);
+            }
+            if (containsAll) {
+                resultSet.set(slot);
+            }
+        }
+        long[] result = new long[resultSet.cardinality()];
+        int index = 0;
+        for (int slot = resultSet.nextSetBit(0); slot >= 0; slot = resultSet.nextSetBit(slot + 1)) {
+            result[index++] = ids[slot];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * 用户标签变更（注册、修改标签）后增量刷新索引
+     *
+     * @param userId
+     * @param tags   新的标签 JSON
+     */
+    public void updateUser(long userId, String tags) {
+        if (!loaded) {
+            // 索引尚未加载，首次加载时会读到最新数据
+            return;
+        }
+        put(userId, toTagIds(tags));
+    }
+
+    /**
+     * 删除用户后移出索引（保留槽位，标签置空后不会再被匹配和搜索到）
+     *
+     * @param userId
+     */
+    public void removeUser(long userId) {
+        if (!loaded) {
+            // 索引尚未加载，首次加载时不会读到已删除的用户
+            return;
+        }
+        remove(userId);
+    }
+
+    /**
+     * 同步 since 之后数据库中有更新的用户（其他实例修改的标签、删除的用户只能通过这种方式同步到本实例）
+     *
+     * @param since
+     * @return 同步的用户数，索引尚未加载时返回 0
+     */
+    public int refreshUpdatedSince(Date since) {
+        if (!loaded) {
+            return 0;
+        }
+        List<User> userList = userMapper.listUserTagsUpdatedSince(since);
+        for (User user : userList) {
+            if (user.getIsDelete() != null && user.getIsDelete() == 1) {
+                remove(user.getId());
+            } else {
+                put(user.getId(), toTagIds(user.getTags()));
+            }
+        }
+        return userList.size();
+    }
+
+    @PostConstruct
+    public void init() {
+        int poolSize = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        matchPool = new ForkJoinPool(poolSize);
+        lsh = new MinHashLsh(lshBands, lshRows);
+        compactExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "match-index-compact");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        matchPool.shutdown();
+        compactExecutor.shutdownNow();
+    }
+
+    /**
+     * 当前索引中的用户数
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            if (tagService.getTagDictionary().getVersion() != dictionaryVersion) {
+                remapTagIds();
+            }
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            // 先记录版本再加载，加载期间字典有变化时下次调用会重新转换
+            TagDictionary tagDictionary = tagService.getTagDictionary();
+            dictionaryVersion = tagDictionary.getVersion();
+            // 流式逐行读取，不会一次性把所有用户读进内存
+            userMapper.scanUserTags(resultContext -> {
+                User user = resultContext.getResultObject();
+                put(user.getId(), toTagIds(user.getTags()));
+            });
+            loaded = true;
+            log.info("match index loaded, users: {}, tags: {}, cost: {}ms",
+                    size, tagDictionary.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 标签字典版本变化后，把所有用户的标签编号转换为当前的规范标签编号并重新排序
+     */
+    private synchronized void remapTagIds() {
+        TagDictionary tagDictionary = tagService.getTagDictionary();
+        long version = tagDictionary.getVersion();
+        if (version == dictionaryVersion) {
+            return;
+        }
+        int changed = 0;
+        for (int slot = 0; slot < size; slot++) {
+            int[] tagIds = userTags[slot];
+            if (tagIds == null) {
+                continue;
+            }
+            int[] newTagIds = new int[tagIds.length];
+            for (int i = 0; i < tagIds.length; i++) {
+                newTagIds[i] = tagDictionary.canonicalId(tagIds[i]);
+            }
+            sortByTagName(tagDictionary, newTagIds);
+            if (!Arrays.equals(tagIds, newTagIds)) {
+                put(userIds[slot], newTagIds);
+                changed++;
+            }
+        }
+        dictionaryVersion = version;
+        log.info("match index remapped to tag dictionary version {}, changed users: {}", version, changed);
+    }
+
+    private synchronized void put(long userId, int[] tagIds) {
+        Integer slot = slotMap.get(userId);
+        if (slot != null) {
+            int[] oldTagIds = userTags[slot];
+            userTags[slot] = tagIds;
+            updatePostings(slot, oldTagIds, tagIds);
+            return;
+        }
+        int newSlot = size;
+        if (newSlot == userIds.length) {
+            int newCapacity = newSlot << 1;
+            userTags = Arrays.copyOf(userTags, newCapacity);
+            userIds = Arrays.copyOf(userIds, newCapacity);
+        }
+        userIds[newSlot] = userId;
+        userTags[newSlot] = tagIds;
+        slotMap.put(userId, newSlot);
+        updatePostings(newSlot, null, tagIds);
+        size = newSlot + 1;
+    }
+
+    private synchronized void remove(long userId) {
+        Integer slot = slotMap.get(userId);
+        if (slot == null) {
+            return;
+        }
+        int[] oldTagIds = userTags[slot];
+        userTags[slot] = null;
+        updatePostings(slot, oldTagIds, null);
+    }
+
+    /**
+     * 新增的标签追加到倒排表，去掉的标签只记录过期数量，过期记录过多时交给后台线程重建倒排表
+     */
+    private void updatePostings(int slot, int[] oldTagIds, int[] newTagIds) {
+        if (newTagIds != null) {
+            for (int i = 0; i < newTagIds.length; i++) {
+                // 标签已按名称排序，相同标签相邻
+                if ((i == 0 || newTagIds[i] != newTagIds[i - 1]) && !contains(oldTagIds, newTagIds[i])) {
+                    posting(newTagIds[i]).add(slot);
+                }
+            }
+        }
+        if (oldTagIds != null) {
+            for (int i = 0; i < oldTagIds.length; i++) {
+                if ((i == 0 || oldTagIds[i] != oldTagIds[i - 1]) && !contains(newTagIds, oldTagIds[i])) {
+                    stalePostingCount++;
+                }
+            }
+        }
+        // 标签有变化时重新计算 LSH 桶，旧桶中的记录同样作为过期记录
+        if (newTagIds != null && !Arrays.equals(oldTagIds, newTagIds)) {
+            lsh.add(slot, newTagIds);
+            if (oldTagIds != null) {
+                stalePostingCount++;
+            }
+        }
+        if (compacting) {
+            compactChangedSlots.set(slot);
+        } else if (stalePostingCount > Math.max(INITIAL_CAPACITY, size)) {
+            compacting = true;
+            compactExecutor.execute(this::compactPostings);
+        }
+    }
+
+    /**
+     * 在新的倒排表和 LSH 桶中重建，完成后再整体替换，重建期间的查询仍然读到完整的旧数据
+     * 只在复制槽位快照和替换时持有锁，重建期间的修改照常写入旧倒排表，替换前再把有变化的槽位补进新倒排表
+     */
+    private void compactPostings() {
+        try {
+            int total;
+            int[][] tagArrays;
+            synchronized (this) {
+                total = size;
+                // 每个用户的标签数组写入后不再修改，复制引用即可
+                tagArrays = Arrays.copyOf(userTags, total);
+            }
+            long start = System.currentTimeMillis();
+            SlotPosting[] newPostings = new SlotPosting[postings.length];
+            MinHashLsh newLsh = new MinHashLsh(lshBands, lshRows);
+            for (int slot = 0; slot < total; slot++) {
+                newPostings = addPostings(newPostings, newLsh, slot, tagArrays[slot]);
+            }
+            synchronized (this) {
+                BitSet changedSlots = compactChangedSlots;
+                for (int slot = changedSlots.nextSetBit(0); slot >= 0; slot = changedSlots.nextSetBit(slot + 1)) {
+                    newPostings = addPostings(newPostings, newLsh, slot, userTags[slot]);
+                }
+                postings = newPostings;
+                lsh = newLsh;
+                // 有变化的槽位在快照中的记录可能已经过期
+                stalePostingCount = changedSlots.cardinality();
+            }
+            log.info("match index postings compacted, users: {}, cost: {}ms", total, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("compact match index postings error", e);
+        } finally {
+            synchronized (this) {
+                compacting = false;
+                compactChangedSlots.clear();
+            }
+        }
+    }
+
+    private static SlotPosting[] addPostings(SlotPosting[] postingArray, MinHashLsh lshIndex, int slot, int[] tagIds) {
+        if (tagIds == null) {
+            return postingArray;
+        }
+        lshIndex.add(slot, tagIds);
+        for (int i = 0; i < tagIds.length; i++) {
+            if (i == 0 || tagIds[i] != tagIds[i - 1]) {
+                postingArray = grow(postingArray, tagIds[i]);
+                posting(postingArray, tagIds[i]).add(slot);
+            }
+        }
+        return postingArray;
+    }
+
+    private SlotPosting posting(int tagId) {
+        SlotPosting[] postingArray = postings;
+        if (tagId >= postingArray.length) {
+            postingArray = grow(postingArray, tagId);
+            postings = postingArray;
+        }
+        return posting(postingArray, tagId);
+    }
+
+    private static SlotPosting[] grow(SlotPosting[] postingArray, int tagId) {
+        if (tagId < postingArray.length) {
+            return postingArray;
+        }
+        return Arrays.copyOf(postingArray, Math.max(tagId + 1, postingArray.length << 1));
+    }
+
+    private static SlotPosting posting(SlotPosting[] postingArray, int tagId) {
+        SlotPosting posting = postingArray[tagId];
+        if (posting == null) {
+            posting = new SlotPosting();
+            postingArray[tagId] = posting;
+        }
+        return posting;
+    }
+
+    private static boolean contains(int[] tagIds, int tagId) {
+        if (tagIds == null) {
+            return false;
+        }
+        for (int id : tagIds) {
+            if (id == tagId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 标签 JSON => 按规范标签名排序后的规范标签编号数组
+     * 标签没有同义词、大小写差异时，排序规则与 AlgorithmUtils.minDistance(List, List) 一致，保证两者计算结果相同
+     *
+     * @param tags
+     * @return 标签为空时返回 null
+     */
+    private int[] toTagIds(String tags) {
+        if (StringUtils.isBlank(tags)) {
+            return null;
+        }
+        List<String> tagList;
+        try {
+            tagList = gson.fromJson(tags, TAG_LIST_TYPE);
+        } catch (JsonSyntaxException e) {
+            log.warn("illegal tags json: {}", tags);
+            return null;
+        }
+        if (tagList == null) {
+            return null;
+        }
+        TagDictionary tagDictionary = tagService.getTagDictionary();
+        int[] tagIds = new int[tagList.size()];
+        int count = 0;
+        for (String tagName : tagList) {
+            int tagId = tagDictionary.intern(tagName);
+            if (tagId >= 0) {
+                tagIds[count++] = tagId;
+            }
+        }
+        if (count < tagIds.length) {
+            tagIds = Arrays.copyOf(tagIds, count);
+        }
+        sortByTagName(tagDictionary, tagIds);
+        return tagIds;
+    }
+
+    /**
+     * 按展示名排序（每个用户的标签很少，插入排序即可，不需要装箱）
+     */
+    private static void sortByTagName(TagDictionary tagDictionary, int[] tagIds) {
+        for (int i = 1; i < tagIds.length; i++) {
+            int tagId = tagIds[i];
+            String tagName = tagDictionary.getTagName(tagId);
+            int j = i - 1;
+            while (j >= 0 && tagDictionary.getTagName(tagIds[j]).compareTo(tagName) > 0) {
+                tagIds[j + 1] = tagIds[j];
+                j--;
+            }
+            tagIds[j + 1] = tagId;
+        }
+    }
+
+    private boolean isHierarchy() {
+        return "hierarchy".equalsIgnoreCase(similarity);
+    }
+
+    /**
+     * 标签编号 => 父标签编号，plain 模式返回 null
+     * 父标签关系由标签字典维护，匹配过程中只读数组，不访问数据库
+     */
+    private int[] parentTagIds() {
+        if (!isHierarchy()) {
+            return null;
+        }
+        return tagService.getTagDictionary().getParentIds();
+    }
+}
@@ -0,0 +1,380 @@
+package com.treay.yujian.manager;
+
+import com.treay.yujian.model.dto.MatchListDTO;
+import com.treay.yujian.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.treay.yujian.constant.RedisConstant.*;
+
+/**
+ * 预计算匹配列表维护
+ * 每个活跃用户的 topK 匹配列表持久化在 Redis 中，读取时不再重新计算；
+ * 用户修改标签后只记录为待处理，由后台任务把该用户的新分数合并到与其有相同标签的活跃用户的匹配列表中，
+ * 只有用户掉出已满的列表（列表外的用户可能应该补进来）时才重新计算
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class MatchListManager {
+
+    /**
+     * 同步其他实例的标签修改时多回看的时间，容忍事务提交延迟和时钟偏差
+     */
+    private static final long REFRESH_OVERLAP_MILLIS = 60 * 1000L;
+
+    /**
+     * 增量维护时每批读取、写回的匹配列表数
+     */
+    private static final int PROCESS_BATCH_SIZE = 200;
+
+    @Resource
+    private MatchIndex matchIndex;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 每个用户保存的匹配列表长度
+     */
+    @Value("${yujian.match.list-size:500}")
+    private int listSize;
+
+    /**
+     * 最近多少天访问过匹配的用户算作活跃用户，匹配列表同样保存这么久
+     */
+    @Value("${yujian.match.active-days:7}")
+    private int activeDays;
+
+    private long lastRefreshTime = System.currentTimeMillis();
+
+    /**
+     * 读取用户的匹配列表，没有时计算并保存，同时记录为活跃用户
+     *
+     * @param userId
+     * @return
+     */
+    public MatchListDTO getMatchList(long userId) {
+        String key = USER_MATCH_LIST_KEY + userId;
+        MatchListDTO matchListDTO = null;
+        try {
+            matchListDTO = (MatchListDTO) redisTemplate.opsForValue().get(key);
+            redisTemplate.opsForZSet().add(USER_MATCH_ACTIVE_KEY, userId, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("redis get match list error", e);
+        }
+        if (matchListDTO != null) {
+            return matchListDTO;
+        }
+        matchListDTO = matchIndex.matchList(userId, listSize);
+        saveMatchList(userId, matchListDTO);
+        return matchListDTO;
+    }
+
+    /**
+     * 保存的匹配列表长度，超过该数量的请求需要实时计算
+     *
+     * @return
+     */
+    public int getListSize() {
+        return listSize;
+    }
+
+    /**
+     * 记录用户修改了标签，事务提交后才写入，保证后台任务读到的是已提交的标签
+     * 同一用户多次修改只保留最早的旧标签
+     *
+     * @param userId
+     * @param oldTags 修改前的标签 JSON
+     */
+    public void markDirty(long userId, String oldTags) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisTemplate.opsForHash().putIfAbsent(USER_MATCH_DIRTY_KEY, String.valueOf(userId), oldTags == null ? "" : oldTags);
+            } catch (Exception e) {
+                log.error("redis mark match dirty error", e);
+            }
+        });
+    }
+
+    /**
+     * 同步其他实例修改的标签到本实例的匹配索引（每个实例都需要执行）
+     */
+    public void refreshIndex() {
+        long now = System.currentTimeMillis();
+        int count = matchIndex.refreshUpdatedSince(new Date(lastRefreshTime - REFRESH_OVERLAP_MILLIS));
+        lastRefreshTime = now;
+        if (count > 0) {
+            log.debug("match index refreshed, users: {}", count);
+        }
+    }
+
+    /**
+     * 处理所有待处理的标签修改，更新受影响的活跃用户的匹配列表（同一时间只应有一个实例执行）
+     *
+     * @return 更新的匹配列表数
+     */
+    public int processDirtyUsers() {
+        boolean hasDirty = Boolean.TRUE.equals(redisTemplate.hasKey(USER_MATCH_DIRTY_KEY));
+        // 上次处理失败时留下的记录
+        Map<Object, Object> leftoverMap = redisTemplate.opsForHash().entries(USER_MATCH_PROCESSING_KEY);
+        if (!hasDirty && leftoverMap.isEmpty()) {
+            return 0;
+        }
+        if (hasDirty) {
+            // 整体改名后处理，处理期间新的修改写入新的 key，不会丢失
+            redisTemplate.rename(USER_MATCH_DIRTY_KEY, USER_MATCH_PROCESSING_KEY);
+            if (!leftoverMap.isEmpty()) {
+                // 改名会覆盖遗留的记录，重新写回；遗留记录的旧标签更早，覆盖新记录
+                redisTemplate.opsForHash().putAll(USER_MATCH_PROCESSING_KEY, leftoverMap);
+            }
+        }
+        // 待处理记录都已提交，先把其他实例的修改同步到本实例的索引，再计算匹配列表
+        refreshIndex();
+        Map<Object, Object> dirtyMap = redisTemplate.opsForHash().entries(USER_MATCH_PROCESSING_KEY);
+
+        long now = System.currentTimeMillis();
+        long[] activeUserIds = getActiveUserIds();
+
+        // 自己修改了标签的活跃用户整体重新计算
+        Set<Long> recomputeUserIds = new LinkedHashSet<>();
+        // 受影响的活跃用户 => 对其有影响的修改了标签的用户
+        Map<Long, List<Long>> changedUserIdsMap = new LinkedHashMap<>();
+        for (Map.Entry<Object, Object> entry : dirtyMap.entrySet()) {
+            long changedUserId = Long.parseLong(String.valueOf(entry.getKey()));
+            if (Arrays.binarySearch(activeUserIds, changedUserId) >= 0) {
+                recomputeUserIds.add(changedUserId);
+            }
+            for (long affectedUserId : matchIndex.affectedUsers(activeUserIds, changedUserId, String.valueOf(entry.getValue()))) {
+                changedUserIdsMap.computeIfAbsent(affectedUserId, key -> new ArrayList<>()).add(changedUserId);
+            }
+        }
+        changedUserIdsMap.keySet().removeAll(recomputeUserIds);
+
+        int mergedCount = 0;
+        Map<String, MatchListDTO> batch = new HashMap<>();
+        List<Long> affectedUserIds = new ArrayList<>(changedUserIdsMap.keySet());
+        for (int from = 0; from < affectedUserIds.size(); from += PROCESS_BATCH_SIZE) {
+            List<Long> userIdList = affectedUserIds.subList(from, Math.min(from + PROCESS_BATCH_SIZE, affectedUserIds.size()));
+            List<Object> matchListList = redisTemplate.opsForValue().multiGet(
+                    userIdList.stream().map(userId -> USER_MATCH_LIST_KEY + userId).collect(Collectors.toList()));
+            for (int i = 0; i < userIdList.size(); i++) {
+                MatchListDTO matchListDTO = matchListList == null ? null : (MatchListDTO) matchListList.get(i);
+                // 没有保存的列表在读取时计算
+                if (matchListDTO == null) {
+                    continue;
+                }
+                long userId = userIdList.get(i);
+                boolean changed = false;
+                boolean exact = true;
+                for (Long changedUserId : changedUserIdsMap.get(userId)) {
+                    int result = mergeScore(matchListDTO, changedUserId, matchIndex.matchScore(userId, changedUserId), listSize);
+                    if (result < 0) {
+                        exact = false;
+                        break;
+                    }
+                    changed |= result > 0;
+                }
+                if (!exact) {
+                    recomputeUserIds.add(userId);
+                } else if (changed) {
+                    matchListDTO.setUpdateTime(now);
+                    batch.put(USER_MATCH_LIST_KEY + userId, matchListDTO);
+                    mergedCount++;
+                }
+            }
+            flushMatchLists(batch);
+        }
+        for (Long userId : recomputeUserIds) {
+            saveMatchList(userId, matchIndex.matchList(userId, listSize));
+        }
+        redisTemplate.delete(USER_MATCH_PROCESSING_KEY);
+        log.info("match lists updated, dirty users: {}, affected: {}, merged: {}, recomputed: {}, cost: {}ms",
+                dirtyMap.size(), affectedUserIds.size(), mergedCount, recomputeUserIds.size(), System.currentTimeMillis() - now);
+        return mergedCount + recomputeUserIds.size();
+    }
+
+    /**
+     * 把一个用户的新分数合并到已保存的匹配列表（按分数升序，最多 listSize 个）
+     * 列表已满时，列表外的用户分数都不小于列表中最大的分数，因此插入新用户并挤掉最后一个、或者列表中的用户分数变小，列表仍然准确；
+     * 只有列表中的用户分数变得比其余所有人都大、或者不再是候选用户时，列表外的用户可能应该补进来，需要重新计算
+     *
+     * @param matchListDTO  已保存的匹配列表，合并后直接修改
+     * @param changedUserId 修改了标签的用户
+     * @param score         新分数，-1 表示不再是候选用户
+     * @param listSize      列表长度上限
+     * @return 1 表示列表有变化，0 表示没有变化，-1 表示需要重新计算
+     */
+    static int mergeScore(MatchListDTO matchListDTO, long changedUserId, int score, int listSize) {
+        if (listSize <= 0) {
+            return 0;
+        }
+        long[] userIds = matchListDTO.getUserIds();
+        int[] scores = matchListDTO.getScores();
+        boolean full = userIds.length >= listSize;
+        int index = -1;
+        for (int i = 0; i < userIds.length; i++) {
+            if (userIds[i] == changedUserId) {
+                index = i;
+                break;
+            }
+        }
+        if (index >= 0) {
+            if (score == scores[index]) {
+                return 0;
+            }
+            int restWorstScore = -1;
+            for (int i = 0; i < scores.length; i++) {
+                if (i != index) {
+                    restWorstScore = Math.max(restWorstScore, scores[i]);
+                }
+            }
+            if (full && (score < 0 || score > restWorstScore)) {
+                return -1;
+            }
+            userIds = remove(userIds, index);
+            scores = remove(scores, index);
+        } else {
+            if (score < 0 || (full && score >= scores[scores.length - 1])) {
+                return 0;
+            }
+            if (full) {
+                // 挤掉分数最大的一个
+                userIds = Arrays.copyOf(userIds, userIds.length - 1);
+                scores = Arrays.copyOf(scores, scores.length - 1);
+            }
+        }
+        if (score >= 0) {
+            // 分数相同时排在后面
+            int position = 0;
+            while (position < scores.length && scores[position] <= score) {
+                position++;
+            }
+            userIds = insert(userIds, position, changedUserId);
+            scores = insert(scores, position, score);
+        }
+        matchListDTO.setUserIds(userIds);
+        matchListDTO.setScores(scores);
+        return 1;
+    }
+
+    private static long[] remove(long[] array, int index) {
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static int[] remove(int[] array, int index) {
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static long[] insert(long[] array, int index, long value) {
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static int[] insert(int[] array, int index, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    /**
+     * 所有活跃用户（同时清理已经不活跃的用户）
+     *
+     * @return 按 id 升序
+     */
+    public long[] getActiveUserIds() {
+        long activeSince = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(activeDays);
+        redisTemplate.opsForZSet().removeRangeByScore(USER_MATCH_ACTIVE_KEY, 0, activeSince);
+        Set<Object> activeSet = redisTemplate.opsForZSet().rangeByScore(USER_MATCH_ACTIVE_KEY, activeSince, Double.MAX_VALUE);
+        long[] activeUserIds = new long[activeSet == null ? 0 : activeSet.size()];
+        int index = 0;
+        if (activeSet != null) {
+            for (Object activeUserId : activeSet) {
+                activeUserIds[index++] = ((Number) activeUserId).longValue();
+            }
+        }
+        Arrays.sort(activeUserIds);
+        return activeUserIds;
+    }
+
+    /**
+     * 重新计算一批用户的匹配列表，每 batchSize 个用户通过一次管道写入 Redis
+     *
+     * @param userIds
+     * @param batchSize
+     * @return 写入的匹配列表数
+     */
+    public int warmMatchLists(List<Long> userIds, int batchSize) {
+        Map<String, MatchListDTO> batch = new HashMap<>();
+        int count = 0;
+        for (Long userId : userIds) {
+            batch.put(USER_MATCH_LIST_KEY + userId, matchIndex.matchList(userId, listSize));
+            if (batch.size() >= batchSize) {
+                count += flushMatchLists(batch);
+            }
+        }
+        count += flushMatchLists(batch);
+        return count;
+    }
+
+    private int flushMatchLists(Map<String, MatchListDTO> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int count = batch.size();
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> stringOperations = (RedisOperations<String, Object>) operations;
+                    batch.forEach((key, matchListDTO) ->
+                            stringOperations.opsForValue().set(key, matchListDTO, activeDays, TimeUnit.DAYS));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("redis set match lists error", e);
+            count = 0;
+        }
+        batch.clear();
+        return count;
+    }
+
+    private void saveMatchList(long userId, MatchListDTO matchListDTO) {
+        try {
+            redisTemplate.opsForValue().set(USER_MATCH_LIST_KEY + userId, matchListDTO, activeDays, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.error("redis set match list error", e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.treay.yujian.manager;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 MinHash 的局部敏感哈希（LSH）
+ * 每个用户的标签集合计算 bands * rows 个 MinHash 值，每 rows 个值组成一个桶键，
+ * 标签集合越相似（Jaccard 相似度越高）落入同一个桶的概率越大，查询时只需取出相同桶中的用户
+ *
+ * @author Treay
+ */
+public class MinHashLsh {
+
+    private final int bands;
+
+    private final int rows;
+
+    private final int[] seeds;
+
+    /**
+     * 每个 band 一张桶表：桶键 => 用户槽位
+     */
+    private final Map<Long, SlotPosting>[] buckets;
+
+    @SuppressWarnings("unchecked")
+    public MinHashLsh(int bands, int rows) {
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new int[bands * rows];
+        // 固定种子，保证每次启动的哈希函数一致
+        int seed = 0x5bd1e995;
+        for (int i = 0; i < seeds.length; i++) {
+            seed = mix(seed + i);
+            seeds[i] = seed;
+        }
+        this.buckets = new Map[bands];
+        for (int band = 0; band < bands; band++) {
+            buckets[band] = new ConcurrentHashMap<>();
+        }
+    }
+
+    public int bands() {
+        return bands;
+    }
+
+    /**
+     * 把用户加入各个 band 的桶（调用方需持有索引锁）
+     *
+     * @param slot
+     * @param tagIds
+     */
+    public void add(int slot, int[] tagIds) {
+        int[] signature = signature(tagIds);
+        for (int band = 0; band < bands; band++) {
+            buckets[band].computeIfAbsent(bucketKey(signature, band), key -> new SlotPosting()).add(slot);
+        }
+    }
+
+    /**
+     * 取出与给定标签落入同一个桶的用户槽位
+     *
+     * @param tagIds
+     * @param probeBands 探测的 band 数，越多召回率越高、耗时越长
+     * @param total      只取小于该值的槽位
+     * @param result     结果集合
+     */
+    public void collect(int[] tagIds, int probeBands, int total, BitSet result) {
+        int[] signature = signature(tagIds);
+        int bandCount = Math.min(Math.max(probeBands, 1), bands);
+        for (int band = 0; band < bandCount; band++) {
+            SlotPosting posting = buckets[band].get(bucketKey(signature, band));
+            if (posting == null) {
+                continue;
+            }
+            int postingSize = posting.size;
+            int[] slots = posting.slots;
+            for (int i = 0; i < postingSize; i++) {
+                if (slots[i] < total) {
+                    result.set(slots[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 标签集合的 MinHash 签名（重复标签不影响结果）
+     */
+    int[] signature(int[] tagIds) {
+        int[] signature = new int[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+            int min = Integer.MAX_VALUE;
+            for (int tagId : tagIds) {
+                int hash = mix(tagId ^ seeds[i]);
+                if (hash < min) {
+                    min = hash;
+                }
+            }
+            signature[i] = min;
+        }
+        return signature;
+    }
+
+    private long bucketKey(int[] signature, int band) {
+        long key = band;
+        int offset = band * rows;
+        for (int row = 0; row < rows; row++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[offset + row];
+        }
+        return key;
+    }
+
+    /**
+     * murmur3 的 32 位混淆函数
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,332 @@
+package com.treay.yujian.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.treay.yujian.constant.RedisConstant.USER_RECOMMEND_RANK_KEY;
+import static com.treay.yujian.constant.RedisConstant.USER_RECOMMEND_RANK_LOCK;
+
+/**
+ * 推荐用户排名：所有用户共用一个 ZSet（用户 id => 被添加好友次数 addCount），所有实例共享
+ * 分页时直接截取排名区间并排除当前用户，只查询当前页的用户信息；
+ * 被添加次数变化时增量维护，缓存预热任务每天整体重建一次
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class RecommendRanking {
+
+    /**
+     * 重建时每批写入的用户数
+     */
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final String REBUILD_KEY = USER_RECOMMEND_RANK_KEY + ":rebuild";
+
+    /**
+     * 排名正在重建的标记，重建期间被添加次数变化、新注册和删除的用户记录到 DIRTY_KEY，
+     * 替换前按数据库的当前值覆盖这些用户的重建结果。不能把增量累加到重建结果上：变化在扫描读到该用户之前提交时，
+     * 扫描结果已经包含这次变化，再累加会重复计算
+     */
+    private static final String REBUILDING_KEY = USER_RECOMMEND_RANK_KEY + ":rebuilding";
+
+    private static final String DIRTY_KEY = USER_RECOMMEND_RANK_KEY + ":dirty";
+
+    /**
+     * 重建标记的过期时间（秒），重建中断时不会一直记录增量
+     */
+    private static final long REBUILDING_TTL_SECONDS = 3600;
+
+    /**
+     * 替换排名。最后一次查询数据库之后才变化的少量用户来不及再查，改用当前排名中增量维护的分数；
+     * 修改排名前先记录变化的用户，替换之前的修改由这里带入新排名，替换之后的修改直接写入新排名
+     * KEYS: 排名、重建结果、重建期间变化的用户、重建标记
+     */
+    private static final RedisScript<Long> SAVE_RANK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then\n" +
+            "    local members = redis.call('SMEMBERS', KEYS[3])\n" +
+            "    for i = 1, #members do\n" +
+            "        local score = redis.call('ZSCORE', KEYS[1], members[i])\n" +
+            "        if score then\n" +
+            "            redis.call('ZADD', KEYS[2], score, members[i])\n" +
+            "        else\n" +
+            "            redis.call('ZREM', KEYS[2], members[i])\n" +
+            "        end\n" +
+            "    end\n" +
+            "end\n" +
+            "redis.call('DEL', KEYS[3], KEYS[4])\n" +
+            "if redis.call('EXISTS', KEYS[2]) == 1 then\n" +
+            "    redis.call('RENAME', KEYS[2], KEYS[1])\n" +
+            "else\n" +
+            "    redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return redis.call('ZCARD', KEYS[1])", Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 按 addCount 降序分页，排除当前用户
+     *
+     * @param excludeUserId 当前用户
+     * @param pageNum
+     * @param pageSize
+     * @return 当前页的用户 id，排名正在由其他实例初始化时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public Page<Long> page(long excludeUserId, long pageNum, long pageSize) {
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(USER_RECOMMEND_RANK_KEY)) && !init()) {
+            return null;
+        }
+        String excludeMember = String.valueOf(excludeUserId);
+        long from = (pageNum - 1) * pageSize;
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.zRevRank(USER_RECOMMEND_RANK_KEY, excludeMember);
+            stringConnection.zCard(USER_RECOMMEND_RANK_KEY);
+            // 多取一个，排除当前用户后仍够一页
+            stringConnection.zRevRange(USER_RECOMMEND_RANK_KEY, from, from + pageSize);
+            return null;
+        });
+        Long excludeRank = (Long) results.get(0);
+        Long count = (Long) results.get(1);
+        Collection<String> members = (Collection<String>) results.get(2);
+        Page<Long> page = new Page<>(pageNum, pageSize, count == null ? 0 : count - (excludeRank == null ? 0 : 1));
+        List<Long> userIdList = new ArrayList<>();
+        // 当前用户排在这一页之前时，排除后这一页整体后移一位
+        boolean skipFirst = excludeRank != null && excludeRank < from;
+        if (members != null) {
+            for (String member : members) {
+                if (skipFirst) {
+                    skipFirst = false;
+                    continue;
+                }
+                if (member.equals(excludeMember)) {
+                    continue;
+                }
+                if (userIdList.size() == pageSize) {
+                    break;
+                }
+                userIdList.add(Long.parseLong(member));
+            }
+        }
+        page.setRecords(userIdList);
+        return page;
+    }
+
+    /**
+     * 用户的被添加次数变化（事务提交后执行）
+     *
+     * @param userId
+     * @param delta
+     */
+    public void incrementAddCount(long userId, long delta) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                String member = String.valueOf(userId);
+                // 先记录变化的用户再修改排名，见 SAVE_RANK_SCRIPT
+                markDirty(member);
+                // 排名未初始化时不增量维护，避免留下不完整的排名
+                if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(USER_RECOMMEND_RANK_KEY))) {
+                    stringRedisTemplate.opsForZSet().incrementScore(USER_RECOMMEND_RANK_KEY, member, delta);
+                }
+            } catch (Exception e) {
+                log.error("redis increment recommend rank error, userId: {}", userId, e);
+            }
+        });
+    }
+
+    /**
+     * 新注册的用户加入排名（事务提交后执行）
+     *
+     * @param userId
+     */
+    public void addUser(long userId) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                String member = String.valueOf(userId);
+                markDirty(member);
+                if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(USER_RECOMMEND_RANK_KEY))) {
+                    stringRedisTemplate.opsForZSet().addIfAbsent(USER_RECOMMEND_RANK_KEY, member, 0);
+                }
+            } catch (Exception e) {
+                log.error("redis add recommend rank error, userId: {}", userId, e);
+            }
+        });
+    }
+
+    /**
+     * 删除的用户移出排名（事务提交后执行）
+     *
+     * @param userId
+     */
+    public void removeUser(long userId) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                String member = String.valueOf(userId);
+                // 重建时可能已经读到该用户，替换前查询数据库时再去掉
+                markDirty(member);
+                stringRedisTemplate.opsForZSet().remove(USER_RECOMMEND_RANK_KEY, member);
+            } catch (Exception e) {
+                log.error("redis remove recommend rank error, userId: {}", userId, e);
+            }
+        });
+    }
+
+    /**
+     * 按 user.addCount 重建排名：先写入临时 key，全部写完后再替换，重建期间分页仍使用旧排名
+     *
+     * @return 排名中的用户数，其他实例正在重建时返回 -1
+     */
+    public int rebuild() {
+        RLock lock = redissonClient.getLock(USER_RECOMMEND_RANK_LOCK);
+        try {
+            if (!lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                return -1;
+            }
+            return doRebuild();
+        } catch (InterruptedException e) {
+            log.error("rebuild recommend rank error", e);
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                // 重建失败时不再记录增量（成功时已在替换排名时删除）
+                stringRedisTemplate.delete(REBUILDING_KEY);
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 排名不存在时初始化（只有一个实例执行）
+     *
+     * @return 排名是否可用
+     */
+    private boolean init() {
+        RLock lock = redissonClient.getLock(USER_RECOMMEND_RANK_LOCK);
+        try {
+            if (!lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            // 拿到锁时可能已经由其他实例初始化完成
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(USER_RECOMMEND_RANK_KEY))) {
+                doRebuild();
+            }
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(USER_RECOMMEND_RANK_KEY));
+        } catch (InterruptedException e) {
+            log.error("init recommend rank error", e);
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                stringRedisTemplate.delete(REBUILDING_KEY);
+                lock.unlock();
+            }
+        }
+    }
+
+    private int doRebuild() {
+        long start = System.currentTimeMillis();
+        // 清掉上次中断的重建留下的数据
+        stringRedisTemplate.delete(Arrays.asList(REBUILD_KEY, DIRTY_KEY));
+        stringRedisTemplate.opsForValue().set(REBUILDING_KEY, "1", REBUILDING_TTL_SECONDS, TimeUnit.SECONDS);
+        Map<String, Double> batch = new LinkedHashMap<>();
+        int[] userCount = {0};
+        userMapper.scanUserAddCount(resultContext -> {
+            Integer addCount = resultContext.getResultObject().getAddCount();
+            batch.put(String.valueOf(resultContext.getResultObject().getId()), addCount == null ? 0D : addCount);
+            userCount[0]++;
+            if (batch.size() >= REBUILD_BATCH_SIZE) {
+                flushRebuildBatch(REBUILD_KEY, batch);
+            }
+        });
+        flushRebuildBatch(REBUILD_KEY, batch);
+        int dirtyCount = refreshDirtyUsers();
+        stringRedisTemplate.execute(SAVE_RANK_SCRIPT,
+                Arrays.asList(USER_RECOMMEND_RANK_KEY, REBUILD_KEY, DIRTY_KEY, REBUILDING_KEY));
+        log.info("recommend rank rebuilt, users: {}, changed during rebuild: {}, cost: {}ms",
+                userCount[0], dirtyCount, System.currentTimeMillis() - start);
+        return userCount[0];
+    }
+
+    /**
+     * 排名正在重建时记录变化的用户
+     *
+     * @param member
+     */
+    private void markDirty(String member) {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(REBUILDING_KEY))) {
+            stringRedisTemplate.opsForSet().add(DIRTY_KEY, member);
+        }
+    }
+
+    /**
+     * 重建期间变化的用户按数据库的当前值覆盖重建结果，已删除的用户移出重建结果
+     *
+     * @return 覆盖的用户数
+     */
+    private int refreshDirtyUsers() {
+        int count = 0;
+        while (true) {
+            List<String> members = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, REBUILD_BATCH_SIZE);
+            if (members == null || members.isEmpty()) {
+                return count;
+            }
+            List<User> userList = userMapper.selectList(new QueryWrapper<User>().select("id", "addCount").in("id", members));
+            Map<String, Double> batch = new LinkedHashMap<>();
+            for (User user : userList) {
+                batch.put(String.valueOf(user.getId()), user.getAddCount() == null ? 0D : user.getAddCount());
+            }
+            Set<String> removedMembers = new HashSet<>(members);
+            removedMembers.removeAll(batch.keySet());
+            if (!removedMembers.isEmpty()) {
+                stringRedisTemplate.opsForZSet().remove(REBUILD_KEY, removedMembers.toArray());
+            }
+            flushRebuildBatch(REBUILD_KEY, batch);
+            count += members.size();
+        }
+    }
+
+    private void flushRebuildBatch(String rebuildKey, Map<String, Double> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            batch.forEach((member, score) -> stringConnection.zAdd(rebuildKey, score, member));
+            return null;
+        });
+        batch.clear();
+    }
+}
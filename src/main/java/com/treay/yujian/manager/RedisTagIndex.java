@@ -0,0 +1,674 @@
+package com.treay.yujian.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.treay.yujian.common.ErrorCode;
+import com.treay.yujian.exception.BusinessException;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.model.vo.TagIndexCheckVO;
+import com.treay.yujian.service.TagService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static com.treay.yujian.constant.RedisConstant.TAG_INDEX_KEY;
+import static com.treay.yujian.constant.RedisConstant.TAG_INDEX_REBUILD_KEY;
+import static com.treay.yujian.constant.RedisConstant.TAG_INDEX_REBUILD_LOCK;
+import static com.treay.yujian.constant.RedisConstant.TAG_POPULARITY_KEY;
+import static com.treay.yujian.constant.RedisConstant.TAG_SEARCH_KEY;
+
+/**
+ * Redis 标签索引：每个标签一个 Set（yujian:tag:{tagId} => 用户 id），所有实例共享
+ * 按标签搜索时对各标签的 Set 求交集，排序后的结果短时间缓存，用于分页；
+ * 同时维护标签热度 ZSet（标签名 => 使用人数），推荐标签直接读取前 K 个；
+ * 标签名都先经过标签字典归并为规范标签名，同义词变化后需要重建
+ * 只有标签表中的标签建索引，用户自由填写、标签表中没有的标签只统计热度
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class RedisTagIndex {
+
+    private static final Type TAG_LIST_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+
+    /**
+     * 搜索结果缓存时间（秒）
+     */
+    private static final long SEARCH_RESULT_TTL_SECONDS = 60;
+
+    /**
+     * 求交集并排序到临时 key，再改名为结果 key 并设置过期时间，结果 key 不会出现没有过期时间的中间状态
+     * KEYS: 结果 key、临时 Set、临时 List、各标签的 Set；ARGV: 过期时间（秒）
+     */
+    private static final RedisScript<Long> SEARCH_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SINTERSTORE', KEYS[2], unpack(KEYS, 4))\n" +
+            "redis.call('SORT', KEYS[2], 'STORE', KEYS[3])\n" +
+            "redis.call('DEL', KEYS[2])\n" +
+            "if redis.call('EXISTS', KEYS[3]) == 1 then\n" +
+            "    redis.call('RENAME', KEYS[3], KEYS[1])\n" +
+            "    redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "end\n" +
+            "return redis.call('LLEN', KEYS[1])", Long.class);
+
+    /**
+     * 热度正在统计的标记，统计期间的标签修改同时记录到增量 ZSet，替换前合并
+     */
+    private static final String POPULARITY_REBUILDING_KEY = TAG_POPULARITY_KEY + ":rebuilding";
+
+    /**
+     * 索引正在重建的标记，重建期间的标签修改同时写入重建中的 Set（yujian:tag:rebuild:{tagId}），改名替换后不会丢失
+     */
+    private static final String INDEX_REBUILDING_KEY = TAG_INDEX_REBUILD_KEY + "rebuilding";
+
+    /**
+     * 统计期间修改过标签的用户 id => 统计期间第一次修改前的标签 JSON
+     * 扫描时跳过已经在其中的用户，统计结束后按修改前的标签补上，再合并增量：
+     * 修改在扫描读到该用户之前提交时，扫描结果已经包含这次修改，直接合并增量会重复计算。
+     * 重建索引时跳过的用户按数据库的当前标签写入重建中的 Set
+     */
+    private static final String REBUILD_DIRTY_KEY = TAG_INDEX_REBUILD_KEY + "dirty";
+
+    private static final String POPULARITY_DELTA_KEY = TAG_POPULARITY_KEY + ":delta";
+
+    private static final String POPULARITY_REBUILD_KEY = TAG_POPULARITY_KEY + ":rebuild";
+
+    /**
+     * 统计、重建标记的过期时间（秒），统计或重建中断时不会一直记录增量
+     */
+    private static final long REBUILDING_TTL_SECONDS = 3600;
+
+    /**
+     * 用重建中的 Set 替换正式的 Set；重建中的 Set 在重建期间被标签修改删空时删除正式的 Set
+     * KEYS: 正式的 Set、重建中的 Set
+     */
+    private static final RedisScript<Long> REPLACE_TAG_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then\n" +
+            "    redis.call('RENAME', KEYS[2], KEYS[1])\n" +
+            "else\n" +
+            "    redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return redis.call('SCARD', KEYS[1])", Long.class);
+
+    /**
+     * 合并统计期间的增量后替换热度，合并和替换之间不会有新的修改丢失
+     * KEYS: 热度、统计结果、增量、统计标记、统计期间修改过标签的用户
+     */
+    private static final RedisScript<Long> SAVE_POPULARITY_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[3]) == 1 then\n" +
+            "    redis.call('ZUNIONSTORE', KEYS[2], 2, KEYS[2], KEYS[3])\n" +
+            "    redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', 0)\n" +
+            "end\n" +
+            "redis.call('DEL', KEYS[3], KEYS[4], KEYS[5])\n" +
+            "if redis.call('EXISTS', KEYS[2]) == 1 then\n" +
+            "    redis.call('RENAME', KEYS[2], KEYS[1])\n" +
+            "else\n" +
+            "    redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return redis.call('ZCARD', KEYS[1])", Long.class);
+
+    /**
+     * 重建时每批写入的用户数
+     */
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final Gson gson = new Gson();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private TagService tagService;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 用户修改标签后更新索引（事务提交后执行）
+     *
+     * @param userId
+     * @param oldTags 修改前的标签 JSON
+     * @param newTags 修改后的标签 JSON
+     */
+    public void updateUserTags(long userId, String oldTags, String newTags) {
+        Set<String> oldTagNames = parseTags(oldTags);
+        Set<String> newTagNames = parseTags(newTags);
+        Set<String> removedTagNames = new HashSet<>(oldTagNames);
+        removedTagNames.removeAll(newTagNames);
+        Set<String> addedTagNames = new HashSet<>(newTagNames);
+        addedTagNames.removeAll(oldTagNames);
+        if (removedTagNames.isEmpty() && addedTagNames.isEmpty()) {
+            return;
+        }
+        Runnable task = () -> {
+            try {
+                Set<String> changedTagNames = new HashSet<>(removedTagNames);
+                changedTagNames.addAll(addedTagNames);
+                Map<String, Long> tagIdMap = tagService.getTagIds(changedTagNames);
+                String member = String.valueOf(userId);
+                // 热度未初始化时不增量维护，避免留下不完整的热度
+                boolean popularityReady = Boolean.TRUE.equals(stringRedisTemplate.hasKey(TAG_POPULARITY_KEY));
+                // 热度正在统计时同时记录增量，统计结果替换前合并，避免丢失统计期间的修改
+                boolean popularityRebuilding = Boolean.TRUE.equals(stringRedisTemplate.hasKey(POPULARITY_REBUILDING_KEY));
+                // 索引正在重建时同时修改重建中的 Set
+                boolean indexRebuilding = Boolean.TRUE.equals(stringRedisTemplate.hasKey(INDEX_REBUILDING_KEY));
+                if (popularityRebuilding || indexRebuilding) {
+                    // 先于增量和重建中的 Set 写入，扫描到该用户时已经能看到，见 REBUILD_DIRTY_KEY
+                    stringRedisTemplate.opsForHash().putIfAbsent(REBUILD_DIRTY_KEY, member, StringUtils.defaultString(oldTags));
+                }
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    for (String tagName : removedTagNames) {
+                        Long tagId = tagIdMap.get(tagName);
+                        // 标签表中没有的自由标签只统计热度，不建索引
+                        if (tagId != null) {
+                            stringConnection.sRem(TAG_INDEX_KEY + tagId, member);
+                            if (indexRebuilding) {
+                                stringConnection.sRem(TAG_INDEX_REBUILD_KEY + tagId, member);
+                            }
+                        }
+                        if (popularityReady) {
+                            stringConnection.zIncrBy(TAG_POPULARITY_KEY, -1, tagName);
+                        }
+                        if (popularityRebuilding) {
+                            stringConnection.zIncrBy(POPULARITY_DELTA_KEY, -1, tagName);
+                        }
+                    }
+                    for (String tagName : addedTagNames) {
+                        Long tagId = tagIdMap.get(tagName);
+                        if (tagId != null) {
+                            stringConnection.sAdd(TAG_INDEX_KEY + tagId, member);
+                            if (indexRebuilding) {
+                                stringConnection.sAdd(TAG_INDEX_REBUILD_KEY + tagId, member);
+                            }
+                        }
+                        if (popularityReady) {
+                            stringConnection.zIncrBy(TAG_POPULARITY_KEY, 1, tagName);
+                        }
+                        if (popularityRebuilding) {
+                            stringConnection.zIncrBy(POPULARITY_DELTA_KEY, 1, tagName);
+                        }
+                    }
+                    if (popularityReady && !removedTagNames.isEmpty()) {
+                        // 已经没人使用的标签
+                        stringConnection.zRemRangeByScore(TAG_POPULARITY_KEY, Double.NEGATIVE_INFINITY, 0);
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                log.error("redis update tag index error, userId: {}", userId, e);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * 搜索同时拥有所有给定标签的用户，按用户 id 升序分页
+     *
+     * @param tagNameList 标签名（完全相同才算匹配）
+     * @param pageNum
+     * @param pageSize
+     * @return 当前页的用户 id，total 为准确的总数
+     */
+    public Page<Long> search(Collection<String> tagNameList, long pageNum, long pageSize) {
+        Page<Long> page = new Page<>(pageNum, pageSize, 0);
+        page.setRecords(new ArrayList<>());
+        Set<String> tagNameSet = canonicalNames(tagNameList);
+        Map<String, Long> tagIdMap = tagService.getTagIds(tagNameSet);
+        if (tagNameSet.isEmpty() || tagIdMap.size() < tagNameSet.size()) {
+            // 有标签不存在，交集为空
+            return page;
+        }
+        // 标签 id 排序后作为结果缓存的 key，相同的标签组合共用一个结果
+        TreeSet<Long> tagIds = new TreeSet<>(tagIdMap.values());
+        String resultKey = TAG_SEARCH_KEY + tagIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(resultKey))) {
+            // 临时 key 每个请求独立，同一组标签的并发请求互不影响
+            String tempKey = resultKey + ":" + UUID.randomUUID();
+            List<String> keys = new ArrayList<>();
+            keys.add(resultKey);
+            keys.add(tempKey + ":set");
+            keys.add(tempKey + ":list");
+            tagIds.forEach(tagId -> keys.add(TAG_INDEX_KEY + tagId));
+            // SINTERSTORE 的耗时取决于最小的 Set，排序只在结果缓存失效时做一次
+            stringRedisTemplate.execute(SEARCH_SCRIPT, keys, String.valueOf(SEARCH_RESULT_TTL_SECONDS));
+        }
+        Long total = stringRedisTemplate.opsForList().size(resultKey);
+        page.setTotal(total == null ? 0 : total);
+        long from = (pageNum - 1) * pageSize;
+        if (from >= page.getTotal()) {
+            return page;
+        }
+        List<String> userIdList = stringRedisTemplate.opsForList().range(resultKey, from, from + pageSize - 1);
+        if (userIdList != null) {
+            page.setRecords(userIdList.stream().map(Long::valueOf).collect(Collectors.toList()));
+        }
+        return page;
+    }
+
+    /**
+     * 使用人数最多的标签
+     * 热度还未初始化时由当前实例统计一次，其他实例在统计完成前返回 null
+     *
+     * @param limit          返回数量
+     * @param excludeTagList 排除的标签（如用户已有的标签）
+     * @return 按使用人数降序，热度不可用时返回 null
+     */
+    public List<String> topTags(int limit, Collection<String> excludeTagList) {
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(TAG_POPULARITY_KEY)) && !initPopularity()) {
+            return null;
+        }
+        Set<String> excludeTagSet = excludeTagList == null ? Collections.emptySet() : canonicalNames(excludeTagList);
+        // 多取排除的标签数，保证排除后仍够 limit 个
+        Set<String> tagNames = stringRedisTemplate.opsForZSet().reverseRange(TAG_POPULARITY_KEY, 0, limit + excludeTagSet.size() - 1);
+        if (tagNames == null) {
+            return new ArrayList<>();
+        }
+        return tagNames.stream()
+                .filter(tagName -> !excludeTagSet.contains(tagName))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 所有标签的热度（标签数只有几千个，可以一次读出）
+     *
+     * @return 规范标签名 => 使用人数，热度不可用时返回 null
+     */
+    public Map<String, Long> getPopularity() {
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(TAG_POPULARITY_KEY)) && !initPopularity()) {
+            return null;
+        }
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet().rangeWithScores(TAG_POPULARITY_KEY, 0, -1);
+        Map<String, Long> popularityMap = new HashMap<>();
+        if (tuples != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    popularityMap.put(tuple.getValue(), tuple.getScore().longValue());
+                }
+            }
+        }
+        return popularityMap;
+    }
+
+    /**
+     * 按 user.tags 统计标签热度（只在热度不存在时执行一次，之后由标签修改增量维护）
+     *
+     * @return 热度是否可用
+     */
+    private boolean initPopularity() {
+        RLock lock = redissonClient.getLock(TAG_INDEX_REBUILD_LOCK);
+        try {
+            if (!lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            // 拿到锁时可能已经由其他实例统计完成
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(TAG_POPULARITY_KEY))) {
+                return true;
+            }
+            beginPopularityRebuild();
+            Set<Long> skippedUserIds = new HashSet<>();
+            Map<String, Long> countMap = countUserTags(null, skippedUserIds);
+            savePopularity(countMap, skippedUserIds);
+            log.info("tag popularity initialized, tags: {}", countMap.size());
+            return true;
+        } catch (InterruptedException e) {
+            log.error("init tag popularity error", e);
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                // 统计失败时不再记录增量（成功时已在替换热度时删除）
+                stringRedisTemplate.delete(Arrays.asList(POPULARITY_REBUILDING_KEY, REBUILD_DIRTY_KEY));
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 按 user.tags 重建整个索引：先写入临时 key，全部写完后再替换，重建期间搜索仍使用旧索引
+     * 重建期间的标签修改同时写入临时 key，替换后不会丢失
+     *
+     * @return 重建的标签数
+     */
+    public int rebuild() {
+        RLock lock = redissonClient.getLock(TAG_INDEX_REBUILD_LOCK);
+        try {
+            if (!lock.tryLock(0, -1, TimeUnit.MILLISECONDS)) {
+                throw new BusinessException(ErrorCode.FORBIDDEN, "标签索引正在重建");
+            }
+            return doRebuild();
+        } catch (InterruptedException e) {
+            log.error("rebuild redis tag index error", e);
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                stringRedisTemplate.delete(Arrays.asList(INDEX_REBUILDING_KEY, POPULARITY_REBUILDING_KEY, REBUILD_DIRTY_KEY));
+                lock.unlock();
+            }
+        }
+    }
+
+    private int doRebuild() {
+        long start = System.currentTimeMillis();
+        // 清掉上次中断的重建留下的临时 key，必须在设置重建标记之前，之后标签修改会写入临时 key
+        for (Long tagId : scanTagIds(TAG_INDEX_REBUILD_KEY)) {
+            stringRedisTemplate.delete(TAG_INDEX_REBUILD_KEY + tagId);
+        }
+        stringRedisTemplate.opsForValue().set(INDEX_REBUILDING_KEY, "1", REBUILDING_TTL_SECONDS, TimeUnit.SECONDS);
+        beginPopularityRebuild();
+        Map<String, Long> tagIdMap = new HashMap<>();
+        Map<String, Long> countMap = new HashMap<>();
+        Map<Long, List<String>> batch = new HashMap<>();
+        Set<Long> skippedUserIds = new HashSet<>();
+        int[] batchUserCount = {0};
+        scanUserTags(skippedUserIds, (userId, tagNames) -> {
+            for (String tagName : tagNames) {
+                countMap.merge(tagName, 1L, Long::sum);
+            }
+            addToRebuildBatch(userId, tagNames, tagIdMap, batch);
+            if (++batchUserCount[0] >= REBUILD_BATCH_SIZE) {
+                flushRebuildBatch(batch);
+                batchUserCount[0] = 0;
+            }
+        });
+        flushRebuildBatch(batch);
+        // 扫描时跳过的用户按数据库的当前标签写入索引（热度按修改前的标签补上再合并增量，见 savePopularity）
+        List<Long> skippedUserIdList = new ArrayList<>(skippedUserIds);
+        for (int from = 0; from < skippedUserIdList.size(); from += REBUILD_BATCH_SIZE) {
+            List<Long> userIdList = skippedUserIdList.subList(from, Math.min(from + REBUILD_BATCH_SIZE, skippedUserIdList.size()));
+            List<User> userList = userMapper.selectList(new QueryWrapper<User>().select("id", "tags").in("id", userIdList));
+            for (User user : userList) {
+                addToRebuildBatch(user.getId(), parseTags(user.getTags()), tagIdMap, batch);
+            }
+            flushRebuildBatch(batch);
+        }
+        // 包括只在重建期间被标签修改写入的临时 key；替换期间的修改同时写入临时 key 和正式 key，改名前后都不会丢失
+        Set<Long> rebuiltTagIds = scanTagIds(TAG_INDEX_REBUILD_KEY);
+        for (Long tagId : rebuiltTagIds) {
+            stringRedisTemplate.execute(REPLACE_TAG_SCRIPT, Arrays.asList(TAG_INDEX_KEY + tagId, TAG_INDEX_REBUILD_KEY + tagId));
+        }
+        // 已经没有用户的标签（期间有用户新加了这个标签时同样用临时 key 替换）
+        for (Long tagId : scanTagIds(TAG_INDEX_KEY)) {
+            if (!rebuiltTagIds.contains(tagId)) {
+                stringRedisTemplate.execute(REPLACE_TAG_SCRIPT, Arrays.asList(TAG_INDEX_KEY + tagId, TAG_INDEX_REBUILD_KEY + tagId));
+            }
+        }
+        stringRedisTemplate.delete(INDEX_REBUILDING_KEY);
+        savePopularity(countMap, skippedUserIds);
+        log.info("redis tag index rebuilt, tags: {}, cost: {}ms", rebuiltTagIds.size(), System.currentTimeMillis() - start);
+        return rebuiltTagIds.size();
+    }
+
+    /**
+     * 按 user.tags 检查索引中每个标签的人数是否一致
+     *
+     * @return
+     */
+    public TagIndexCheckVO check() {
+        long[] userCount = {0};
+        Map<String, Long> expectedCountMap = countUserTags(userCount, null);
+        Map<String, Long> tagIdMap = tagService.getTagIds(expectedCountMap.keySet());
+        List<String> mismatchTagList = new ArrayList<>();
+        Set<Long> expectedTagIds = new HashSet<>();
+        for (Map.Entry<String, Long> entry : expectedCountMap.entrySet()) {
+            Long tagId = tagIdMap.get(entry.getKey());
+            // 标签表中没有的自由标签不建索引，只检查热度
+            if (tagId != null) {
+                expectedTagIds.add(tagId);
+                Long actualCount = stringRedisTemplate.opsForSet().size(TAG_INDEX_KEY + tagId);
+                long actual = actualCount == null ? 0 : actualCount;
+                if (actual != entry.getValue()) {
+                    mismatchTagList.add(entry.getKey() + "(" + tagId + "): " + entry.getValue() + " / " + actual);
+                }
+            }
+            Double popularity = stringRedisTemplate.opsForZSet().score(TAG_POPULARITY_KEY, entry.getKey());
+            if (popularity == null || popularity.longValue() != entry.getValue()) {
+                mismatchTagList.add(entry.getKey() + " 热度: " + entry.getValue() + " / " + popularity);
+            }
+        }
+        // 索引中有、但已经没有用户的标签
+        for (Long tagId : scanTagIds(TAG_INDEX_KEY)) {
+            if (!expectedTagIds.contains(tagId)) {
+                Long actualCount = stringRedisTemplate.opsForSet().size(TAG_INDEX_KEY + tagId);
+                mismatchTagList.add("(" + tagId + "): 0 / " + actualCount);
+            }
+        }
+        TagIndexCheckVO tagIndexCheckVO = new TagIndexCheckVO();
+        tagIndexCheckVO.setUserCount(userCount[0]);
+        tagIndexCheckVO.setTagCount(expectedCountMap.size());
+        tagIndexCheckVO.setMismatchTagList(mismatchTagList);
+        tagIndexCheckVO.setConsistent(mismatchTagList.isEmpty());
+        return tagIndexCheckVO;
+    }
+
+    /**
+     * 按 user.tags 统计每个标签的使用人数
+     *
+     * @param userCount      不为 null 时写入有标签的用户数
+     * @param skippedUserIds 不为 null 时跳过统计期间修改过标签的用户，并写入跳过的用户 id
+     * @return 标签名 => 使用人数
+     */
+    private Map<String, Long> countUserTags(long[] userCount, Set<Long> skippedUserIds) {
+        Map<String, Long> countMap = new HashMap<>();
+        scanUserTags(skippedUserIds, (userId, tagNames) -> {
+            if (userCount != null && !tagNames.isEmpty()) {
+                userCount[0]++;
+            }
+            for (String tagName : tagNames) {
+                countMap.merge(tagName, 1L, Long::sum);
+            }
+        });
+        return countMap;
+    }
+
+    /**
+     * 流式扫描所有用户的标签，每读满一批再交给 consumer
+     *
+     * @param skippedUserIds 不为 null 时跳过读到这一批时已经在 REBUILD_DIRTY_KEY 中的用户，并写入跳过的用户 id
+     * @param consumer       用户 id, 规范标签名
+     */
+    private void scanUserTags(Set<Long> skippedUserIds, BiConsumer<Long, Set<String>> consumer) {
+        Map<Long, Set<String>> scannedMap = new LinkedHashMap<>();
+        userMapper.scanUserTags(resultContext -> {
+            User user = resultContext.getResultObject();
+            scannedMap.put(user.getId(), parseTags(user.getTags()));
+            if (scannedMap.size() >= REBUILD_BATCH_SIZE) {
+                flushScanned(scannedMap, skippedUserIds, consumer);
+            }
+        });
+        flushScanned(scannedMap, skippedUserIds, consumer);
+    }
+
+    private void flushScanned(Map<Long, Set<String>> scannedMap, Set<Long> skippedUserIds,
+                              BiConsumer<Long, Set<String>> consumer) {
+        if (scannedMap.isEmpty()) {
+            return;
+        }
+        // 读完这一批之后才查询，读到之前已经提交的修改都已记录
+        List<Object> oldTagsList = null;
+        if (skippedUserIds != null) {
+            List<Object> members = scannedMap.keySet().stream().map(String::valueOf).collect(Collectors.toList());
+            oldTagsList = stringRedisTemplate.opsForHash().multiGet(REBUILD_DIRTY_KEY, members);
+        }
+        int i = 0;
+        for (Map.Entry<Long, Set<String>> entry : scannedMap.entrySet()) {
+            if (oldTagsList != null && oldTagsList.get(i++) != null) {
+                skippedUserIds.add(entry.getKey());
+                continue;
+            }
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+        scannedMap.clear();
+    }
+
+    /**
+     * 开始统计热度：清掉上次中断的统计留下的增量，之后的标签修改同时记录到增量 ZSet
+     */
+    private void beginPopularityRebuild() {
+        stringRedisTemplate.delete(Arrays.asList(POPULARITY_DELTA_KEY, REBUILD_DIRTY_KEY));
+        stringRedisTemplate.opsForValue().set(POPULARITY_REBUILDING_KEY, "1", REBUILDING_TTL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 补上扫描时跳过的用户在统计期间第一次修改前的标签，合并统计期间的增量后整体替换标签热度
+     */
+    private void savePopularity(Map<String, Long> countMap, Set<Long> skippedUserIds) {
+        List<Object> members = skippedUserIds.stream().map(String::valueOf).collect(Collectors.toList());
+        for (int from = 0; from < members.size(); from += REBUILD_BATCH_SIZE) {
+            List<Object> oldTagsList = stringRedisTemplate.opsForHash().multiGet(REBUILD_DIRTY_KEY,
+                    members.subList(from, Math.min(from + REBUILD_BATCH_SIZE, members.size())));
+            for (Object oldTags : oldTagsList) {
+                for (String tagName : parseTags((String) oldTags)) {
+                    countMap.merge(tagName, 1L, Long::sum);
+                }
+            }
+        }
+        stringRedisTemplate.delete(POPULARITY_REBUILD_KEY);
+        if (!countMap.isEmpty()) {
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            countMap.forEach((tagName, count) -> tuples.add(new DefaultTypedTuple<>(tagName, count.doubleValue())));
+            stringRedisTemplate.opsForZSet().add(POPULARITY_REBUILD_KEY, tuples);
+        }
+        stringRedisTemplate.execute(SAVE_POPULARITY_SCRIPT,
+                Arrays.asList(TAG_POPULARITY_KEY, POPULARITY_REBUILD_KEY, POPULARITY_DELTA_KEY, POPULARITY_REBUILDING_KEY,
+                        REBUILD_DIRTY_KEY));
+    }
+
+    private void addToRebuildBatch(long userId, Set<String> tagNames, Map<String, Long> tagIdMap,
+                                   Map<Long, List<String>> batch) {
+        Set<String> unknownTagNames = new HashSet<>(tagNames);
+        unknownTagNames.removeAll(tagIdMap.keySet());
+        if (!unknownTagNames.isEmpty()) {
+            Map<String, Long> existTagIdMap = tagService.getTagIds(unknownTagNames);
+            // 标签表中没有的自由标签也记下来（id 为 null），不再重复查询
+            for (String tagName : unknownTagNames) {
+                tagIdMap.put(tagName, existTagIdMap.get(tagName));
+            }
+        }
+        for (String tagName : tagNames) {
+            Long tagId = tagIdMap.get(tagName);
+            if (tagId != null) {
+                batch.computeIfAbsent(tagId, key -> new ArrayList<>()).add(String.valueOf(userId));
+            }
+        }
+    }
+
+    private void flushRebuildBatch(Map<Long, List<String>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (Map.Entry<Long, List<String>> entry : batch.entrySet()) {
+                stringConnection.sAdd(TAG_INDEX_REBUILD_KEY + entry.getKey(), entry.getValue().toArray(new String[0]));
+            }
+            return null;
+        });
+        batch.clear();
+    }
+
+    /**
+     * 索引（或重建中的索引）现有的标签 id
+     *
+     * @param keyPrefix TAG_INDEX_KEY 或 TAG_INDEX_REBUILD_KEY
+     */
+    private Set<Long> scanTagIds(String keyPrefix) {
+        Set<Long> tagIds = new HashSet<>();
+        ScanOptions scanOptions = ScanOptions.scanOptions().match(keyPrefix + "*").count(1000).build();
+        try (Cursor<byte[]> cursor = stringRedisTemplate.executeWithStickyConnection(
+                connection -> connection.scan(scanOptions))) {
+            while (cursor != null && cursor.hasNext()) {
+                String suffix = new String(cursor.next()).substring(keyPrefix.length());
+                // 跳过搜索结果、重建标记等其他 key
+                if (StringUtils.isNumeric(suffix)) {
+                    tagIds.add(Long.valueOf(suffix));
+                }
+            }
+        }
+        return tagIds;
+    }
+
+    /**
+     * 按标签字典归并同义词、大小写不同的标签，索引和热度都以规范标签名为准
+     */
+    private Set<String> canonicalNames(Collection<String> tagNameList) {
+        TagDictionary tagDictionary = tagService.getTagDictionary();
+        Set<String> tagNameSet = new LinkedHashSet<>();
+        for (String tagName : tagNameList) {
+            if (StringUtils.isBlank(tagName)) {
+                continue;
+            }
+            // 只查询不登记，避免搜索词进入字典；字典中没有的标签按原名处理
+            int tagId = tagDictionary.find(tagName);
+            tagNameSet.add(tagId < 0 ? tagName.trim() : tagDictionary.getTagName(tagId));
+        }
+        return tagNameSet;
+    }
+
+    private Set<String> parseTags(String tags) {
+        if (StringUtils.isBlank(tags)) {
+            return Collections.emptySet();
+        }
+        try {
+            List<String> tagList = gson.fromJson(tags, TAG_LIST_TYPE);
+            if (tagList == null) {
+                return Collections.emptySet();
+            }
+            return canonicalNames(tagList);
+        } catch (JsonSyntaxException e) {
+            log.warn("illegal tags json: {}", tags);
+            return Collections.emptySet();
+        }
+    }
+}
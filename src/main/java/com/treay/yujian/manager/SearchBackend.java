@@ -0,0 +1,76 @@
+package com.treay.yujian.manager;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.treay.yujian.model.domain.Team;
+import com.treay.yujian.model.domain.User;
+
+import java.util.Date;
+
+/**
+ * 全文搜索后端（用户昵称、简介，队伍名称、描述）
+ * 通过 yujian.search.backend 选择实现；写入方法在事务提交后生效，其他实例的修改由 SearchIndexJob 定时同步
+ *
+ * @author Treay
+ */
+public interface SearchBackend {
+
+    /**
+     * 索引完成初次重建前不可用，调用方应退回到数据库模糊查询
+     *
+     * @return
+     */
+    boolean isReady();
+
+    /**
+     * 新增或更新用户（使用 id, username, profile）
+     *
+     * @param user
+     */
+    void indexUser(User user);
+
+    void deleteUser(long userId);
+
+    /**
+     * 新增或更新队伍（使用 id, name, description）
+     *
+     * @param team
+     */
+    void indexTeam(Team team);
+
+    void deleteTeam(long teamId);
+
+    /**
+     * 搜索用户
+     *
+     * @param text     搜索文本
+     * @param pageNum
+     * @param pageSize
+     * @return 按相关度降序的用户 id
+     */
+    Page<Long> searchUsers(String text, long pageNum, long pageSize);
+
+    /**
+     * 搜索队伍
+     *
+     * @param text     搜索文本
+     * @param pageNum
+     * @param pageSize
+     * @return 按相关度降序的队伍 id
+     */
+    Page<Long> searchTeams(String text, long pageNum, long pageSize);
+
+    /**
+     * 从数据库整体重建索引
+     *
+     * @return 索引的用户数和队伍数之和
+     */
+    int rebuild();
+
+    /**
+     * 同步某个时间之后修改过（包括删除）的用户和队伍
+     *
+     * @param since
+     * @return 同步的用户数和队伍数之和
+     */
+    int refreshUpdatedSince(Date since);
+}
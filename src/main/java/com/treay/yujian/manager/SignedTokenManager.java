@@ -0,0 +1,186 @@
+package com.treay.yujian.manager;
+
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.utils.SignedToken;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.treay.yujian.constant.RedisConstant.TOKEN_REVOKED_KEY;
+
+/**
+ * 签名令牌（yujian.token.mode = signed）
+ * 登录时签发带用户 id、角色和过期时间的 HMAC 令牌，校验时不访问 Redis；
+ * 注销或修改密码时记录用户的吊销时间（yujian:token:revoked 用户 id => 时间戳），吊销时间之前签发的令牌全部失效。
+ * 吊销记录在每个实例的内存中保存一份，定时从 Redis 同步，其他实例的吊销最多在一个同步间隔后生效。
+ * 同步在自己的线程上执行，不使用 @Scheduled，缓存预热、索引重建等耗时任务不会推迟吊销生效。
+ * <p>
+ * 签发时间和吊销时间分别取自签发令牌和执行吊销的实例的本地时钟，所有实例必须通过 NTP 同步时钟，允许的时钟偏差为 1 秒：
+ * 签发实例的时钟比吊销实例快 d 时，吊销前 d 以内签发的令牌不会失效；慢 d 时，吊销后 d 以内重新登录签发的令牌会被误判为已吊销
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class SignedTokenManager {
+
+    public static final String MODE_SIGNED = "signed";
+
+    /**
+     * 令牌模式：redis 为令牌 => 用户信息保存在 Redis 中；signed 为签名令牌
+     */
+    @Value("${yujian.token.mode:redis}")
+    private String mode;
+
+    /**
+     * 签名密钥，所有实例必须相同
+     */
+    @Value("${yujian.token.secret:}")
+    private String secret;
+
+    /**
+     * 签名令牌有效期（分钟），不续期
+     */
+    @Value("${yujian.token.signed-ttl-minutes:120}")
+    private long ttlMinutes;
+
+    /**
+     * 吊销记录同步间隔（毫秒）
+     */
+    @Value("${yujian.token.revocation-sync-delay:5000}")
+    private long revocationSyncDelay;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    private SignedToken signedToken;
+
+    /**
+     * 用户 id => 吊销时间
+     */
+    private final Map<Long, Long> revokedMap = new ConcurrentHashMap<>();
+
+    private boolean enabled;
+
+    private ScheduledExecutorService revocationExecutor;
+
+    @PostConstruct
+    public void init() {
+        enabled = MODE_SIGNED.equals(mode);
+        if (!enabled) {
+            return;
+        }
+        // 密钥过短时可以被暴力破解
+        if (StringUtils.length(secret) < 32) {
+            throw new IllegalStateException("yujian.token.secret must be at least 32 characters in signed token mode");
+        }
+        signedToken = new SignedToken(secret.getBytes(StandardCharsets.UTF_8));
+        syncRevocations();
+        revocationExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        revocationExecutor.scheduleWithFixedDelay(this::doSyncRevocations,
+                revocationSyncDelay, revocationSyncDelay, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (revocationExecutor != null) {
+            revocationExecutor.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 签发令牌
+     *
+     * @param safetyUser 脱敏后的用户
+     * @return
+     */
+    public String issue(User safetyUser) {
+        long now = System.currentTimeMillis();
+        Integer userRole = safetyUser.getUserRole();
+        return signedToken.sign(safetyUser.getId(), userRole == null ? 0 : userRole, now,
+                now + TimeUnit.MINUTES.toMillis(ttlMinutes));
+    }
+
+    /**
+     * 校验令牌
+     *
+     * @param token
+     * @return 令牌有效时返回用户 id，签名错误、已过期或已吊销时返回 null
+     * （签发时间不晚于吊销时间即视为已吊销，两个时间来自不同实例的时钟，见类注释中允许的时钟偏差）
+     */
+    public Long verify(String token) {
+        SignedToken.Claims claims = signedToken.verify(token, System.currentTimeMillis());
+        if (claims == null) {
+            return null;
+        }
+        Long revokedAt = revokedMap.get(claims.getUserId());
+        if (revokedAt != null && claims.getIssuedAt() <= revokedAt) {
+            return null;
+        }
+        return claims.getUserId();
+    }
+
+    /**
+     * 吊销用户当前所有的令牌
+     *
+     * @param userId
+     */
+    public void revoke(long userId) {
+        long now = System.currentTimeMillis();
+        revokedMap.merge(userId, now, Math::max);
+        stringRedisTemplate.opsForHash().put(TOKEN_REVOKED_KEY, String.valueOf(userId), String.valueOf(now));
+    }
+
+    /**
+     * 从 Redis 同步吊销记录，删除已经超过令牌有效期的记录
+     *
+     * @return 当前的吊销记录数
+     */
+    public int syncRevocations() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(TOKEN_REVOKED_KEY);
+        Map<Long, Long> latestMap = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            long revokedAt = Long.parseLong((String) entry.getValue());
+            // 吊销时间之前签发的令牌都已过期，记录不再需要
+            if (revokedAt < expireBefore) {
+                stringRedisTemplate.opsForHash().delete(TOKEN_REVOKED_KEY, entry.getKey());
+                continue;
+            }
+            latestMap.put(Long.parseLong((String) entry.getKey()), revokedAt);
+        }
+        latestMap.forEach((userId, revokedAt) -> revokedMap.merge(userId, revokedAt, Math::max));
+        revokedMap.entrySet().removeIf(entry -> entry.getValue() < expireBefore);
+        return revokedMap.size();
+    }
+
+    private void doSyncRevocations() {
+        // 异常不能抛出，否则后续的同步不再执行
+        try {
+            syncRevocations();
+        } catch (Exception e) {
+            log.error("sync token revocations error", e);
+        }
+    }
+}
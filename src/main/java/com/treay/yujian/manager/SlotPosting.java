@@ -0,0 +1,24 @@
+package com.treay.yujian.manager;
+
+import java.util.Arrays;
+
+/**
+ * 只追加的用户槽位列表（倒排表、LSH 桶共用）
+ * 只在持有索引锁时追加，读时先读 size 再读数组，保证读到的槽位都已写好
+ *
+ * @author Treay
+ */
+class SlotPosting {
+
+    volatile int[] slots = new int[8];
+
+    volatile int size;
+
+    void add(int slot) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size << 1);
+        }
+        slots[size] = slot;
+        size = size + 1;
+    }
+}
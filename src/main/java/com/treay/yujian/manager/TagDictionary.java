@@ -0,0 +1,341 @@
+package com.treay.yujian.manager;
+
+import com.treay.yujian.model.domain.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 标签字典：标签名 <=> int 编号
+ * 标签名先规范化（全角转半角、忽略大小写、合并空白），再按同义词归并到规范标签，同义标签的编号都解析到规范标签的编号；
+ * 编号只增不减，重新加载标签表后已有编号不变，只有同义词、父标签或已有标签的展示名变化时版本号才递增
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class TagDictionary {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * 同义词链的最大长度，超过时视为成环
+     */
+    private static final int MAX_SYNONYM_DEPTH = 16;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * 规范化后的标签名 => 编号（同义标签也有自己的编号）
+     */
+    private final Map<String, Integer> tagIdMap = new ConcurrentHashMap<>();
+
+    private volatile int tagCount;
+
+    /**
+     * 编号 => 规范化后的标签名 / 展示用的标签名 / 规范标签编号 / 父标签编号（没有父标签为 -1）
+     * 只在持有锁时写，扩容或重新加载时整体替换
+     */
+    private volatile String[] tagKeys = new String[INITIAL_CAPACITY];
+
+    private volatile String[] tagNames = new String[INITIAL_CAPACITY];
+
+    private volatile int[] canonicalIds = new int[INITIAL_CAPACITY];
+
+    private volatile int[] parentIds = newParentIds(INITIAL_CAPACITY);
+
+    /**
+     * 同义标签 => 规范标签（都是规范化后的标签名）
+     */
+    private volatile Map<String, String> synonymMap = Collections.emptyMap();
+
+    /**
+     * 规范标签 => 父标签（都是规范化后的标签名）
+     */
+    private volatile Map<String, String> parentMap = Collections.emptyMap();
+
+    /**
+     * 规范化后的标签名 => 标签表中的标签名
+     */
+    private volatile Map<String, String> displayNameMap = Collections.emptyMap();
+
+    /**
+     * 0 表示尚未加载标签表
+     */
+    private volatile long version;
+
+    /**
+     * 标签名规范化：全角转半角、去掉首尾空白、转小写、连续空白合并为一个空格
+     *
+     * @param tagName
+     * @return 空白标签返回 null
+     */
+    public static String normalize(String tagName) {
+        if (StringUtils.isBlank(tagName)) {
+            return null;
+        }
+        String normalized = Normalizer.normalize(tagName, Normalizer.Form.NFKC).trim().toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : WHITESPACE.matcher(normalized).replaceAll(" ");
+    }
+
+    /**
+     * 查询规范标签编号，字典中还没有的标签会被登记
+     *
+     * @param tagName
+     * @return 空白标签返回 -1
+     */
+    public int intern(String tagName) {
+        String key = normalize(tagName);
+        if (key == null) {
+            return -1;
+        }
+        Integer tagId = tagIdMap.get(key);
+        return tagId != null ? canonicalIds[tagId] : internNew(key, tagName);
+    }
+
+    /**
+     * 查询规范标签编号（不登记）
+     *
+     * @param tagName
+     * @return 字典中没有时返回 -1
+     */
+    public int find(String tagName) {
+        String key = normalize(tagName);
+        Integer tagId = key == null ? null : tagIdMap.get(key);
+        return tagId == null ? -1 : canonicalIds[tagId];
+    }
+
+    /**
+     * 编号 => 规范标签编号（用于把同义词变化前得到的编号转换为当前的规范标签编号）
+     *
+     * @param tagId
+     * @return
+     */
+    public int canonicalId(int tagId) {
+        return canonicalIds[tagId];
+    }
+
+    /**
+     * 编号 => 展示用的标签名（标签表中有该标签时为表中的名称，否则为第一次登记时的名称）
+     *
+     * @param tagId
+     * @return
+     */
+    public String getTagName(int tagId) {
+        return tagNames[tagId];
+    }
+
+    /**
+     * 标签名 => 规范标签的展示名（同义词归并后的名称）
+     *
+     * @param tagName
+     * @return 空白标签返回 null
+     */
+    public String canonicalName(String tagName) {
+        int tagId = intern(tagName);
+        return tagId < 0 ? null : tagNames[tagId];
+    }
+
+    /**
+     * 规范标签编号 => 父标签的规范标签编号（没有父标签为 -1），返回的数组只读
+     * 数组长度可能小于 size()，超出部分视为没有父标签
+     *
+     * @return
+     */
+    public int[] getParentIds() {
+        return parentIds;
+    }
+
+    /**
+     * 已登记的编号数
+     *
+     * @return
+     */
+    public int size() {
+        return tagCount;
+    }
+
+    /**
+     * 字典版本号，同义词、父标签或展示名变化时递增，0 表示尚未加载标签表
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 按标签表重新生成同义词和父标签关系，已登记的编号保持不变
+     *
+     * @param tagList 需包含 id, tagName, parentId, synonymId
+     * @return 版本号是否变化
+     */
+    public synchronized boolean load(List<Tag> tagList) {
+        Map<Long, String> keyById = new HashMap<>(tagList.size() * 2);
+        Map<Long, Tag> tagById = new HashMap<>(tagList.size() * 2);
+        Map<String, String> newDisplayNameMap = new HashMap<>(tagList.size() * 2);
+        for (Tag tag : tagList) {
+            String key = normalize(tag.getTagName());
+            if (key == null) {
+                continue;
+            }
+            keyById.put(tag.getId(), key);
+            tagById.put(tag.getId(), tag);
+            // 规范化后同名的标签以先创建的为准
+            newDisplayNameMap.putIfAbsent(key, tag.getTagName());
+        }
+        Map<String, String> newSynonymMap = new HashMap<>();
+        for (Tag tag : tagById.values()) {
+            String key = keyById.get(tag.getId());
+            String canonicalKey = resolveSynonym(tag, keyById, tagById);
+            if (!canonicalKey.equals(key)) {
+                newSynonymMap.put(key, canonicalKey);
+            }
+        }
+        Map<String, String> newParentMap = new HashMap<>();
+        for (Tag tag : tagById.values()) {
+            String key = keyById.get(tag.getId());
+            String parentKey = tag.getParentId() == null ? null : keyById.get(tag.getParentId());
+            if (parentKey == null || newSynonymMap.containsKey(key)) {
+                continue;
+            }
+            parentKey = newSynonymMap.getOrDefault(parentKey, parentKey);
+            if (!parentKey.equals(key)) {
+                newParentMap.put(key, parentKey);
+            }
+        }
+
+        boolean changed = version == 0 || !newSynonymMap.equals(synonymMap) || !newParentMap.equals(parentMap);
+        int count = tagCount;
+        String[] keys = tagKeys;
+        for (int tagId = 0; tagId < count && !changed; tagId++) {
+            String displayName = newDisplayNameMap.get(keys[tagId]);
+            changed = displayName != null && !displayName.equals(tagNames[tagId]);
+        }
+        synonymMap = newSynonymMap;
+        parentMap = newParentMap;
+        displayNameMap = newDisplayNameMap;
+        if (!changed) {
+            return false;
+        }
+        rebuildRelations();
+        version++;
+        log.info("tag dictionary loaded, tags: {}, synonyms: {}, version: {}", tagList.size(), newSynonymMap.size(), version);
+        return true;
+    }
+
+    /**
+     * 沿 synonymId 找到规范标签，成环或过长时以当前标签为准
+     */
+    private static String resolveSynonym(Tag tag, Map<Long, String> keyById, Map<Long, Tag> tagById) {
+        Tag current = tag;
+        for (int depth = 0; depth < MAX_SYNONYM_DEPTH; depth++) {
+            Long synonymId = current.getSynonymId();
+            if (synonymId == null || Objects.equals(synonymId, current.getId()) || !tagById.containsKey(synonymId)) {
+                return keyById.get(current.getId());
+            }
+            current = tagById.get(synonymId);
+        }
+        log.warn("tag synonym chain too long, tagId: {}", tag.getId());
+        return keyById.get(tag.getId());
+    }
+
+    /**
+     * 按新的同义词、父标签关系重新生成所有已登记编号的规范编号、父编号和展示名，生成完整后再发布
+     */
+    private void rebuildRelations() {
+        int count = tagCount;
+        String[] keys = tagKeys;
+        String[] names = Arrays.copyOf(tagNames, tagNames.length);
+        for (int tagId = 0; tagId < count; tagId++) {
+            names[tagId] = displayNameMap.getOrDefault(keys[tagId], names[tagId]);
+        }
+        tagNames = names;
+        int[] canonicals = Arrays.copyOf(canonicalIds, canonicalIds.length);
+        int[] parents = newParentIds(parentIds.length);
+        // 规范标签或父标签可能还没有登记，登记时数组会扩容，循环条件随之增长
+        for (int tagId = 0; tagId < tagCount; tagId++) {
+            String canonicalKey = synonymMap.get(tagKeys[tagId]);
+            int canonicalId = canonicalKey == null ? tagId : keyId(canonicalKey);
+            String parentKey = canonicalKey == null ? parentMap.get(tagKeys[tagId]) : null;
+            int parentId = parentKey == null ? -1 : keyId(parentKey);
+            if (tagId >= canonicals.length) {
+                canonicals = Arrays.copyOf(canonicals, canonicalIds.length);
+            }
+            if (tagId >= parents.length) {
+                int oldLength = parents.length;
+                parents = Arrays.copyOf(parents, parentIds.length);
+                Arrays.fill(parents, oldLength, parents.length, -1);
+            }
+            canonicals[tagId] = canonicalId;
+            parents[tagId] = parentId;
+        }
+        canonicalIds = canonicals;
+        parentIds = parents;
+    }
+
+    /**
+     * 规范标签（同义词和父标签关系的目标都是规范标签）=> 编号，不经过 canonicalIds，重新生成关系时旧数组还未更新
+     */
+    private int keyId(String canonicalKey) {
+        Integer tagId = tagIdMap.get(canonicalKey);
+        return tagId != null ? tagId : internNew(canonicalKey, canonicalKey);
+    }
+
+    private synchronized int internNew(String key, String tagName) {
+        Integer tagId = tagIdMap.get(key);
+        if (tagId != null) {
+            return canonicalIds[tagId];
+        }
+        // 规范标签本身不会再有同义词，先登记规范标签不会无限递归
+        String canonicalKey = synonymMap.get(key);
+        int canonicalId = canonicalKey == null ? -1 : keyId(canonicalKey);
+        int newTagId = tagCount;
+        ensureCapacity(newTagId + 1);
+        tagKeys[newTagId] = key;
+        tagNames[newTagId] = displayNameMap.getOrDefault(key, tagName.trim());
+        canonicalIds[newTagId] = canonicalId < 0 ? newTagId : canonicalId;
+        tagIdMap.put(key, newTagId);
+        tagCount = newTagId + 1;
+        if (canonicalKey == null) {
+            // 先登记再处理父标签，父子关系成环时也不会无限递归
+            String parentKey = parentMap.get(key);
+            if (parentKey != null) {
+                int parentId = keyId(parentKey);
+                ensureCapacity(newTagId + 1);
+                parentIds[newTagId] = parentId;
+            }
+        }
+        return canonicalIds[newTagId];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= tagKeys.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, tagKeys.length << 1);
+        tagKeys = Arrays.copyOf(tagKeys, newCapacity);
+        tagNames = Arrays.copyOf(tagNames, newCapacity);
+        canonicalIds = Arrays.copyOf(canonicalIds, newCapacity);
+        int[] parents = Arrays.copyOf(parentIds, newCapacity);
+        Arrays.fill(parents, parentIds.length, newCapacity, -1);
+        parentIds = parents;
+    }
+
+    private static int[] newParentIds(int capacity) {
+        int[] parents = new int[capacity];
+        Arrays.fill(parents, -1);
+        return parents;
+    }
+}
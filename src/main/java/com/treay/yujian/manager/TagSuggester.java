@@ -0,0 +1,100 @@
+package com.treay.yujian.manager;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.treay.yujian.model.domain.Tag;
+import com.treay.yujian.service.TagService;
+import com.treay.yujian.utils.TagPrefixIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标签联想
+ * 标签表中的标签和用户实际使用的标签（同义标签也可以联想到规范标签）构建为前缀索引，按热度排序；
+ * 索引只读，定时整体重建，查询不访问数据库和 Redis
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class TagSuggester {
+
+    @Resource
+    private TagService tagService;
+
+    @Resource
+    private RedisTagIndex redisTagIndex;
+
+    private volatile TagPrefixIndex prefixIndex;
+
+    /**
+     * 前缀联想
+     *
+     * @param prefix 用户输入的前缀（规范化后匹配，忽略大小写和全角半角）
+     * @param limit  返回数量
+     * @return 按热度降序的标签名
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String normalizedPrefix = TagDictionary.normalize(prefix);
+        if (normalizedPrefix == null) {
+            return new ArrayList<>();
+        }
+        TagPrefixIndex index = prefixIndex;
+        if (index == null) {
+            index = refresh();
+        }
+        return index.suggest(normalizedPrefix, limit);
+    }
+
+    /**
+     * 按当前的标签表、标签字典和标签热度重建前缀索引
+     *
+     * @return 新的前缀索引
+     */
+    public synchronized TagPrefixIndex refresh() {
+        long start = System.currentTimeMillis();
+        TagDictionary tagDictionary = tagService.getTagDictionary();
+        Map<String, Long> popularityMap = redisTagIndex.getPopularity();
+        if (popularityMap == null) {
+            // 热度正在由其他实例初始化，先不排序
+            popularityMap = Collections.emptyMap();
+        }
+        // 规范化后的标签名 => 规范标签展示名
+        Map<String, String> nameMap = new LinkedHashMap<>();
+        QueryWrapper<Tag> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("tagName");
+        for (Tag tag : tagService.list(queryWrapper)) {
+            String key = TagDictionary.normalize(tag.getTagName());
+            if (key != null) {
+                nameMap.putIfAbsent(key, tagDictionary.canonicalName(tag.getTagName()));
+            }
+        }
+        // 热度中的标签都是用户正在使用的规范标签名
+        for (String tagName : popularityMap.keySet()) {
+            String key = TagDictionary.normalize(tagName);
+            if (key != null) {
+                nameMap.putIfAbsent(key, tagName);
+            }
+        }
+        String[] keys = new String[nameMap.size()];
+        String[] names = new String[nameMap.size()];
+        long[] counts = new long[nameMap.size()];
+        int index = 0;
+        for (Map.Entry<String, String> entry : nameMap.entrySet()) {
+            keys[index] = entry.getKey();
+            names[index] = entry.getValue();
+            counts[index] = popularityMap.getOrDefault(entry.getValue(), 0L);
+            index++;
+        }
+        TagPrefixIndex newPrefixIndex = new TagPrefixIndex(keys, names, counts);
+        prefixIndex = newPrefixIndex;
+        log.info("tag suggest index rebuilt, tags: {}, cost: {}ms", keys.length, System.currentTimeMillis() - start);
+        return newPrefixIndex;
+    }
+}
@@ -0,0 +1,151 @@
+package com.treay.yujian.manager;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.treay.yujian.constant.RedisConstant.TOKEN_KEY;
+
+/**
+ * 登录令牌滑动续期（Redis 令牌模式）
+ * 请求只把用到的令牌记录在内存中，不访问 Redis；续期任务每隔几秒把这段时间内用到的令牌通过管道一次性续期，
+ * 同一个令牌在一个周期内无论被用多少次都只续期一次。已注销或已过期的令牌 EXPIRE 不会生效，不会被重新创建。
+ * 续期在自己的线程上执行，不使用 @Scheduled：Spring 默认只有一个调度线程，缓存预热、索引重建等耗时任务执行期间续期会停止，
+ * 活跃用户的令牌会在有效期到达时失效
+ *
+ * @author Treay
+ */
+@Component
+@Slf4j
+public class TokenRenewer {
+
+    /**
+     * 每次管道续期的令牌数
+     */
+    private static final int RENEW_BATCH_SIZE = 1000;
+
+    /**
+     * 令牌有效期（分钟），从最后一次使用开始计算
+     */
+    @Value("${yujian.token.session-ttl-minutes:10}")
+    private long sessionTtlMinutes;
+
+    /**
+     * 批量续期的间隔（毫秒）
+     */
+    @Value("${yujian.token.renew-delay:5000}")
+    private long renewDelay;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 上次续期之后用到的令牌（uuid）
+     */
+    private final Set<String> touchedTokens = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService renewExecutor;
+
+    @PostConstruct
+    public void init() {
+        renewExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-renew");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewExecutor.scheduleWithFixedDelay(this::doRenewTokens, renewDelay, renewDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录令牌被使用，由续期任务异步续期
+     *
+     * @param uuid
+     */
+    public void touch(String uuid) {
+        touchedTokens.add(uuid);
+    }
+
+    public long getSessionTtlMinutes() {
+        return sessionTtlMinutes;
+    }
+
+    /**
+     * 续期上次续期之后用到的令牌
+     *
+     * @return 续期的令牌数
+     */
+    public int renew() {
+        List<String> batch = new ArrayList<>(Math.min(touchedTokens.size(), RENEW_BATCH_SIZE));
+        int count = 0;
+        // 逐个取出，取出后再被使用的令牌留到下一次续期
+        Iterator<String> iterator = touchedTokens.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+            if (batch.size() >= RENEW_BATCH_SIZE) {
+                count += flush(batch);
+            }
+        }
+        count += flush(batch);
+        return count;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        renewExecutor.shutdown();
+        try {
+            renewExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            renew();
+        } catch (Exception e) {
+            log.error("renew tokens on shutdown error", e);
+        }
+    }
+
+    private void doRenewTokens() {
+        // 异常不能抛出，否则后续的续期不再执行
+        try {
+            int count = renew();
+            if (count > 0) {
+                log.debug("tokens renewed, count: {}", count);
+            }
+        } catch (Exception e) {
+            log.error("renew tokens error", e);
+        }
+    }
+
+    private int flush(List<String> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long ttlSeconds = TimeUnit.MINUTES.toSeconds(sessionTtlMinutes);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String uuid : batch) {
+                stringConnection.expire(TOKEN_KEY + uuid, ttlSeconds);
+            }
+            return null;
+        });
+        int count = batch.size();
+        batch.clear();
+        return count;
+    }
+}
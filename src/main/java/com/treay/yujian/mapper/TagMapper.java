@@ -2,6 +2,10 @@ package com.treay.yujian.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.treay.yujian.model.domain.Tag;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -12,6 +16,13 @@ import com.treay.yujian.model.domain.Tag;
 */
 public interface TagMapper extends BaseMapper<Tag> {
 
+    /**
+     * 按标签名查询标签（包括逻辑删除的标签）
+     *
+     * @param tagNameList
+     * @return
+     */
+    List<Tag> selectByTagNames(@Param("tagNameList") Collection<String> tagNameList);
 }
 
 
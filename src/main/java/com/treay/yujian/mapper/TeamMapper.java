@@ -2,6 +2,10 @@ package com.treay.yujian.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.treay.yujian.model.domain.Team;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
 
 /**
  * 队伍 Mapper
@@ -11,6 +15,13 @@ import com.treay.yujian.model.domain.Team;
  */
 public interface TeamMapper extends BaseMapper<Team> {
 
+    /**
+     * 查询某个时间之后修改过的队伍的名称和描述，包括已删除的队伍（isDelete = 1）
+     *
+     * @param since
+     * @return
+     */
+    List<Team> listTeamTextUpdatedSince(@Param("since") Date since);
 }
 
 
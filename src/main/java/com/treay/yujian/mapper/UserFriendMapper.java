@@ -0,0 +1,31 @@
+package com.treay.yujian.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.treay.yujian.model.domain.UserFriend;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.List;
+
+/**
+ * 用户好友关系 Mapper
+ *
+ * @author Treay
+ */
+public interface UserFriendMapper extends BaseMapper<UserFriend> {
+
+    /**
+     * 批量写入好友关系，已存在的关系忽略
+     *
+     * @param userFriendList
+     * @return 新写入的行数
+     */
+    int insertIgnoreBatch(@Param("userFriendList") List<UserFriend> userFriendList);
+
+    /**
+     * 按 (userId, friendId) 升序流式扫描所有好友关系（只查 userId, friendId），用于加载内存好友图
+     *
+     * @param resultHandler
+     */
+    void scanUserFriends(ResultHandler<UserFriend> resultHandler);
+}
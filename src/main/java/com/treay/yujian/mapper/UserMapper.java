@@ -4,7 +4,10 @@ package com.treay.yujian.mapper;
 
 import com.treay.yujian.model.domain.User;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -17,6 +20,43 @@ public interface UserMapper extends BaseMapper<User> {
 
     List<User> searchAddCount();
 
+    /**
+     * 流式扫描所有有标签的用户（只查 id, tags），逐行交给 resultHandler 处理，不会把整张表读进内存
+     *
+     * @param resultHandler
+     */
+    void scanUserTags(ResultHandler<User> resultHandler);
+
+    /**
+     * 流式扫描所有用户的昵称和简介（只查 id, username, profile），用于重建全文索引
+     *
+     * @param resultHandler
+     */
+    void scanUserText(ResultHandler<User> resultHandler);
+
+    /**
+     * 流式扫描所有用户的被添加次数（只查 id, addCount），用于重建推荐排名
+     *
+     * @param resultHandler
+     */
+    void scanUserAddCount(ResultHandler<User> resultHandler);
+
+    /**
+     * 查询某个时间之后修改过的用户的昵称和简介，包括已删除的用户（isDelete = 1）
+     *
+     * @param since
+     * @return
+     */
+    List<User> listUserTextUpdatedSince(@Param("since") Date since);
+
+    /**
+     * 查询某个时间之后修改过的用户的标签，包括已删除的用户（isDelete = 1）
+     *
+     * @param since
+     * @return
+     */
+    List<User> listUserTagsUpdatedSince(@Param("since") Date since);
+
 }
 
 
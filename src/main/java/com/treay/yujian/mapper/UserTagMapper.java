@@ -0,0 +1,44 @@
+package com.treay.yujian.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.treay.yujian.model.domain.UserTag;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 用户标签关系 Mapper
+ *
+ * @author Treay
+ */
+public interface UserTagMapper extends BaseMapper<UserTag> {
+
+    /**
+     * 同时拥有所有给定标签的用户 id（按 id 升序分页）
+     *
+     * @param tagIdList 标签 id（不能重复，否则命中次数凑不够）
+     * @param offset
+     * @param pageSize
+     * @return
+     */
+    List<Long> selectUserIdsByTagIds(@Param("tagIdList") Collection<Long> tagIdList,
+                                     @Param("offset") long offset,
+                                     @Param("pageSize") long pageSize);
+
+    /**
+     * 同时拥有所有给定标签的用户数
+     *
+     * @param tagIdList 标签 id（不能重复，否则命中次数凑不够）
+     * @return
+     */
+    long countUsersByTagIds(@Param("tagIdList") Collection<Long> tagIdList);
+
+    /**
+     * 使用人数最多的标签
+     *
+     * @param limit
+     * @return 按使用人数降序排列的标签名
+     */
+    List<String> selectHotTagNames(@Param("limit") int limit);
+}
@@ -36,6 +36,11 @@ public class Tag implements Serializable {
      */
     private Long parentId;
 
+    /**
+     * 同义标签id（指向规范标签，为空表示本身是规范标签）
+     */
+    private Long synonymId;
+
     /**
      * 是否为父标签 0-不是，1-父标签
      */
@@ -80,6 +85,7 @@ public class Tag implements Serializable {
             && (this.getTagName() == null ? other.getTagName() == null : this.getTagName().equals(other.getTagName()))
             && (this.getUserId() == null ? other.getUserId() == null : this.getUserId().equals(other.getUserId()))
             && (this.getParentId() == null ? other.getParentId() == null : this.getParentId().equals(other.getParentId()))
+            && (this.getSynonymId() == null ? other.getSynonymId() == null : this.getSynonymId().equals(other.getSynonymId()))
             && (this.getIsParent() == null ? other.getIsParent() == null : this.getIsParent().equals(other.getIsParent()))
             && (this.getCreateTime() == null ? other.getCreateTime() == null : this.getCreateTime().equals(other.getCreateTime()))
             && (this.getUpdateTime() == null ? other.getUpdateTime() == null : this.getUpdateTime().equals(other.getUpdateTime()))
@@ -94,6 +100,7 @@ public class Tag implements Serializable {
         result = prime * result + ((getTagName() == null) ? 0 : getTagName().hashCode());
         result = prime * result + ((getUserId() == null) ? 0 : getUserId().hashCode());
         result = prime * result + ((getParentId() == null) ? 0 : getParentId().hashCode());
+        result = prime * result + ((getSynonymId() == null) ? 0 : getSynonymId().hashCode());
         result = prime * result + ((getIsParent() == null) ? 0 : getIsParent().hashCode());
         result = prime * result + ((getCreateTime() == null) ? 0 : getCreateTime().hashCode());
         result = prime * result + ((getUpdateTime() == null) ? 0 : getUpdateTime().hashCode());
@@ -111,6 +118,7 @@ public class Tag implements Serializable {
         sb.append(", tagName=").append(tagName);
         sb.append(", userId=").append(userId);
         sb.append(", parentId=").append(parentId);
+        sb.append(", synonymId=").append(synonymId);
         sb.append(", isParent=").append(isParent);
         sb.append(", createTime=").append(createTime);
         sb.append(", updateTime=").append(updateTime);
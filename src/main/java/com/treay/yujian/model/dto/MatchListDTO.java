@@ -0,0 +1,31 @@
+package com.treay.yujian.model.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 用户匹配列表（预计算后持久化到 Redis）
+ *
+ * @author Treay
+ */
+@Data
+public class MatchListDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 按相似度从高到低排列的用户 id
+     */
+    private long[] userIds;
+
+    /**
+     * 与 userIds 一一对应的标签编辑距离，越小越相似
+     */
+    private int[] scores;
+
+    /**
+     * 计算时间（毫秒时间戳）
+     */
+    private long updateTime;
+}
@@ -0,0 +1,16 @@
+package com.treay.yujian.model.request;
+
+import lombok.Data;
+
+/**
+ * 分页查询好友列表请求体
+ *
+ * @author Treay
+ */
+@Data
+public class FriendListRequest {
+    private String userAccount;
+    private String uuid;
+    private long pageNum = 1;
+    private long pageSize = 20;
+}
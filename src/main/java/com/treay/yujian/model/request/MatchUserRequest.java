@@ -4,7 +4,26 @@ import lombok.Data;
 
 @Data
 public class MatchUserRequest {
+    /**
+     * 返回数量（兼容旧版本，未传 pageSize 时等同于 pageSize = num, pageNum = 1）
+     */
     private int num;
+
+    /**
+     * 页面大小
+     */
+    private Integer pageSize;
+
+    /**
+     * 当前是第几页
+     */
+    private Integer pageNum;
+
     private String userAccount;
     private String uuid;
+
+    /**
+     * 召回率要求 (0, 1)，不传或 >= 1 时使用准确匹配，否则使用近似匹配
+     */
+    private Double recall;
 }
@@ -0,0 +1,18 @@
+package com.treay.yujian.model.request;
+
+import lombok.Data;
+
+/**
+ * 查询共同好友请求体
+ *
+ * @author Treay
+ */
+@Data
+public class MutualFriendRequest {
+    private String userAccount;
+    private String uuid;
+    /**
+     * 对方用户 id
+     */
+    private long userId;
+}
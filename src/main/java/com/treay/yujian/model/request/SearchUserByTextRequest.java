@@ -0,0 +1,16 @@
+package com.treay.yujian.model.request;
+
+
+import lombok.Data;
+
+/**
+ * 按昵称和简介搜索用户请求体
+ *
+ * @author Treay
+ */
+@Data
+public class SearchUserByTextRequest {
+    private long pageSize;
+    private long pageNum;
+    private String searchText;
+}
@@ -0,0 +1,27 @@
+package com.treay.yujian.model.vo;
+
+import com.treay.yujian.model.domain.User;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 可能认识的人（脱敏）
+ *
+ * @author Treay
+ */
+@Data
+public class FriendSuggestionVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 推荐的用户
+     */
+    private User user;
+
+    /**
+     * 共同好友数
+     */
+    private int mutualCount;
+}
@@ -0,0 +1,37 @@
+package com.treay.yujian.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 标签索引一致性检查结果
+ *
+ * @author Treay
+ */
+@Data
+public class TagIndexCheckVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 有标签的用户数（按 user.tags 统计）
+     */
+    private long userCount;
+
+    /**
+     * 检查的标签数
+     */
+    private int tagCount;
+
+    /**
+     * 不一致的标签，格式为 “标签名(标签id): 期望人数 / 索引人数”
+     */
+    private List<String> mismatchTagList;
+
+    /**
+     * 是否一致
+     */
+    private boolean consistent;
+}
@@ -0,0 +1,41 @@
+package com.treay.yujian.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 本实例登录令牌本地缓存的统计（实例启动后累计）
+ *
+ * @author Treay
+ */
+@Data
+public class TokenCacheStatsVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 命中本地缓存的次数
+     */
+    private long hitCount;
+
+    /**
+     * 未命中、需要查询 Redis 的次数
+     */
+    private long missCount;
+
+    /**
+     * 命中率
+     */
+    private double hitRate;
+
+    /**
+     * 收到的失效通知数（包括本实例发出的）
+     */
+    private long invalidationCount;
+
+    /**
+     * 当前缓存的令牌数
+     */
+    private int size;
+}
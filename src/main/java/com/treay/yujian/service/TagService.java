@@ -1,8 +1,12 @@
 package com.treay.yujian.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.treay.yujian.manager.TagDictionary;
 import com.treay.yujian.model.domain.Tag;
 
+import java.util.Collection;
+import java.util.Map;
+
 
 /**
 * @author 16799
@@ -11,4 +15,26 @@ import com.treay.yujian.model.domain.Tag;
 */
 public interface TagService extends IService<Tag> {
 
+    /**
+     * 内存中的标签字典（标签名规范化、同义词归并、int 编号、父标签关系），首次调用时从标签表加载
+     *
+     * @return
+     */
+    TagDictionary getTagDictionary();
+
+    /**
+     * 标签表有变化（数量或最后修改时间不同）时重新加载标签字典
+     *
+     * @return 是否重新加载
+     */
+    boolean refreshTagDictionary();
+
+    /**
+     * 查询标签 id（不创建），标签名先经标签字典归并为标签表中的规范标签
+     * 用户自由填写、标签表中没有的标签不会写入标签表
+     *
+     * @param tagNameList
+     * @return 标签名 => 规范标签 id，标签表中不存在（或已删除）的标签不在结果中，同义词对应同一个 id
+     */
+    Map<String, Long> getTagIds(Collection<String> tagNameList);
 }
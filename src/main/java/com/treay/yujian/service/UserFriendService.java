@@ -0,0 +1,49 @@
+package com.treay.yujian.service;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.treay.yujian.model.domain.UserFriend;
+
+/**
+ * 用户好友关系服务
+ *
+ * @author Treay
+ */
+public interface UserFriendService extends IService<UserFriend> {
+
+    /**
+     * 双方互相添加为好友（已经是好友时忽略）
+     *
+     * @param userId
+     * @param friendId
+     */
+    void addFriend(long userId, long friendId);
+
+    /**
+     * 双方互相删除好友
+     *
+     * @param userId
+     * @param friendId
+     */
+    void removeFriend(long userId, long friendId);
+
+    /**
+     * 分页查询用户的好友 id（按好友 id 升序）
+     * 回填完成前同时合并 user.friendId JSON 中还没有回填的好友
+     *
+     * @param userId
+     * @param pageNum
+     * @param pageSize
+     * @return
+     */
+    Page<Long> pageFriendIds(long userId, long pageNum, long pageSize);
+
+    /**
+     * 回填一批已有用户的好友关系
+     *
+     * @param lastUserId 上一批最后一个用户 id
+     * @param batchSize
+     * @return 本批最后一个用户 id，没有更多用户时返回 -1
+     */
+    long backfillUserFriends(long lastUserId, int batchSize);
+}
@@ -6,6 +6,7 @@ import com.treay.yujian.model.domain.User;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.treay.yujian.model.dto.UserDTO;
 import com.treay.yujian.model.request.*;
+import com.treay.yujian.model.vo.FriendSuggestionVO;
 import com.treay.yujian.model.vo.TagVo;
 import com.treay.yujian.model.vo.UserSendMessage;
 
@@ -59,6 +60,14 @@ public interface UserService extends IService<User> {
      */
     Page<User> searchUsersByTags(SearchUserByTagsRequest byTagsRequest);
 
+    /**
+     * 根据昵称和简介搜索用户
+     *
+     * @param byTextRequest
+     * @return
+     */
+    Page<User> searchUsersByText(SearchUserByTextRequest byTextRequest);
+
     /**
      * 更新用户信息
      * @param userDTO
@@ -77,6 +86,15 @@ public interface UserService extends IService<User> {
      * @return
      */
     User getLoginUser(String userAccount, String uuid);
+
+    /**
+     * 用户注销
+     *
+     * @param userAccount
+     * @param uuid
+     * @return 删除的令牌数
+     */
+    int userLogout(String userAccount, String uuid);
     /**
      * 是否为管理员
      *
@@ -95,11 +113,11 @@ public interface UserService extends IService<User> {
 
     /**
      * 匹配用户
-     * @param num
+     * @param matchUserRequest
      * @param loginUser
      * @return
      */
-    List<User> matchUsers(long num, User loginUser);
+    List<User> matchUsers(MatchUserRequest matchUserRequest, User loginUser);
 
     /**
      * 发邮件
@@ -145,11 +163,29 @@ public interface UserService extends IService<User> {
     boolean rejectFriend(AddFriendRequest addFriendRequest);
 
     /**
-     * 查看好友列表
+     * 分页查看好友列表
+     * @param loginUser
+     * @param pageNum
+     * @param pageSize
+     * @return
+     */
+    Page<User> listFriend(User loginUser, long pageNum, long pageSize);
+
+    /**
+     * 可能认识的人（好友的好友，按共同好友数降序）
      * @param loginUser
+     * @param limit
      * @return
      */
-    List<User> listFriend(User loginUser);
+    List<FriendSuggestionVO> suggestFriends(User loginUser, int limit);
+
+    /**
+     * 和另一个用户的共同好友
+     * @param loginUser
+     * @param userId
+     * @return
+     */
+    List<User> listMutualFriends(User loginUser, long userId);
 
     /**
      * 同意好友后刷新缓存
@@ -166,6 +202,13 @@ public interface UserService extends IService<User> {
      */
     int updateTags(UserDTO userDTO, User loginUser);
 
+    /**
+     * 删除用户（逻辑删除），同时移出推荐排名和匹配索引
+     * @param userId
+     * @return
+     */
+    boolean deleteUser(long userId);
+
     /**
      * 推荐用户
      * @param userId
@@ -174,4 +217,11 @@ public interface UserService extends IService<User> {
      * @return
      */
     Page<User> recommend(long userId, long pageSize, long pageNum);
+
+    /**
+     * 查询用户已有标签和推荐标签（按使用人数排序，排除已有标签）
+     * @param loginUser
+     * @return
+     */
+    TagVo getTags(User loginUser);
 }
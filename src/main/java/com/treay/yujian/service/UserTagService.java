@@ -0,0 +1,58 @@
+package com.treay.yujian.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.treay.yujian.model.domain.UserTag;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 用户标签关系服务
+ *
+ * @author Treay
+ */
+public interface UserTagService extends IService<UserTag> {
+
+    /**
+     * 按用户标签 JSON 重写该用户的标签关系（只增删有变化的标签）
+     *
+     * @param userId
+     * @param tags   标签 JSON，为空表示没有标签
+     */
+    void saveUserTags(long userId, String tags);
+
+    /**
+     * 回填一批已有用户的标签关系
+     *
+     * @param lastUserId 上一批最后一个用户 id
+     * @param batchSize
+     * @return 本批最后一个用户 id，没有更多用户时返回 -1
+     */
+    long backfillUserTags(long lastUserId, int batchSize);
+
+    /**
+     * 同时拥有所有给定标签的用户 id（按 id 升序分页）
+     *
+     * @param tagNameList 标签名，同义词归并为同一个标签
+     * @param offset
+     * @param pageSize
+     * @return 有标签不在标签表中时为空
+     */
+    List<Long> listUserIdsByTags(Collection<String> tagNameList, long offset, long pageSize);
+
+    /**
+     * 同时拥有所有给定标签的用户数
+     *
+     * @param tagNameList 标签名，同义词归并为同一个标签
+     * @return
+     */
+    long countUsersByTags(Collection<String> tagNameList);
+
+    /**
+     * 使用人数最多的标签
+     *
+     * @param limit
+     * @return
+     */
+    List<String> listHotTagNames(int limit);
+}
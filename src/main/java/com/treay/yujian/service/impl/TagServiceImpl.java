@@ -1,21 +1,103 @@
 package com.treay.yujian.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 
+import com.treay.yujian.manager.TagDictionary;
 import com.treay.yujian.mapper.TagMapper;
 import com.treay.yujian.model.domain.Tag;
 import com.treay.yujian.service.TagService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 /**
 * @author 16799
 * @description 针对表【tag(标签表)】的数据库操作Service实现
 * @createDate 2024-05-02 11:36:38
 */
 @Service
+@Slf4j
 public class TagServiceImpl extends ServiceImpl<TagMapper, Tag>
     implements TagService {
 
+    @Resource
+    private TagDictionary tagDictionary;
+
+    /**
+     * 上次加载时标签表的数量和最后修改时间
+     */
+    private String tagTableFingerprint;
+
+    @Override
+    public TagDictionary getTagDictionary() {
+        if (tagDictionary.getVersion() == 0) {
+            refreshTagDictionary();
+        }
+        return tagDictionary;
+    }
+
+    @Override
+    public synchronized boolean refreshTagDictionary() {
+        QueryWrapper<Tag> countQueryWrapper = new QueryWrapper<>();
+        countQueryWrapper.select("count(*) as tagCount", "max(updateTime) as lastUpdateTime");
+        Map<String, Object> countMap = this.getMap(countQueryWrapper);
+        String fingerprint = countMap == null ? "" : countMap.get("tagCount") + "|" + countMap.get("lastUpdateTime");
+        if (tagDictionary.getVersion() > 0 && Objects.equals(fingerprint, tagTableFingerprint)) {
+            return false;
+        }
+        QueryWrapper<Tag> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "tagName", "parentId", "synonymId");
+        // 规范化后同名的标签以先创建的为准
+        queryWrapper.orderByAsc("id");
+        List<Tag> tagList = this.list(queryWrapper);
+        tagTableFingerprint = fingerprint;
+        return tagDictionary.load(tagList);
+    }
+
+    @Override
+    public Map<String, Long> getTagIds(Collection<String> tagNameList) {
+        Map<String, Long> tagIdMap = new HashMap<>();
+        if (tagNameList == null || tagNameList.isEmpty()) {
+            return tagIdMap;
+        }
+        // 同义词、大小写、全半角不同的标签名都对应到标签表中的规范标签；字典中没有的标签按原名查询
+        TagDictionary dictionary = getTagDictionary();
+        Map<String, String> canonicalNameMap = new HashMap<>();
+        for (String tagName : tagNameList) {
+            if (StringUtils.isBlank(tagName)) {
+                continue;
+            }
+            int tagId = dictionary.find(tagName);
+            canonicalNameMap.put(tagName, tagId < 0 ? tagName.trim() : dictionary.getTagName(tagId));
+        }
+        if (canonicalNameMap.isEmpty()) {
+            return tagIdMap;
+        }
+        Map<String, Long> existTagIdMap = new HashMap<>();
+        for (Tag tag : this.baseMapper.selectByTagNames(new LinkedHashSet<>(canonicalNameMap.values()))) {
+            // selectByTagNames 会查出逻辑删除的标签
+            if (tag.getIsDelete() == null || tag.getIsDelete() == 0) {
+                existTagIdMap.put(TagDictionary.normalize(tag.getTagName()), tag.getId());
+            }
+        }
+        canonicalNameMap.forEach((tagName, canonicalName) -> {
+            Long tagId = existTagIdMap.get(TagDictionary.normalize(canonicalName));
+            if (tagId != null) {
+                tagIdMap.put(tagName, tagId);
+            }
+        });
+        return tagIdMap;
+    }
+
 }
 
 
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.treay.yujian.common.ErrorCode;
 import com.treay.yujian.common.ResultUtils;
 import com.treay.yujian.exception.BusinessException;
+import com.treay.yujian.manager.SearchBackend;
 import com.treay.yujian.mapper.TeamMapper;
 import com.treay.yujian.model.dto.TeamQuery;
 import com.treay.yujian.model.enums.TeamStatusEnum;
@@ -18,10 +19,12 @@ import com.treay.yujian.model.vo.UserVO;
 import com.treay.yujian.model.domain.Team;
 import com.treay.yujian.service.UserService;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -50,6 +53,15 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
     @Resource
     private RedissonClient redissonClient;
 
+    @Resource
+    private SearchBackend searchBackend;
+
+    /**
+     * 按关键词搜索队伍时最多返回相关度最高的多少个（过滤后），也是每批从全文索引取出的命中数
+     */
+    @Value("${yujian.search.max-team-hits:200}")
+    private int maxTeamHits;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public long addTeam(AddTeamRequest addTeamRequest) {
@@ -126,6 +138,7 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         if (!result) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "创建队伍失败");
         }
+        searchBackend.indexTeam(team);
         return teamId;
     }
 
@@ -161,7 +174,16 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
 
         Team updateTeam = new Team();
         BeanUtils.copyProperties(teamUpdateRequest, updateTeam);
-        return this.updateById(updateTeam);
+        boolean result = this.updateById(updateTeam);
+        if (result) {
+            // updateById 不更新为 null 的字段
+            Team indexTeam = new Team();
+            indexTeam.setId(id);
+            indexTeam.setName(updateTeam.getName() != null ? updateTeam.getName() : oldTeam.getName());
+            indexTeam.setDescription(updateTeam.getDescription() != null ? updateTeam.getDescription() : oldTeam.getDescription());
+            searchBackend.indexTeam(indexTeam);
+        }
+        return result;
     }
 
 
@@ -276,6 +298,7 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         if (userTeams.size() == 1) {
             // 删除队伍
             this.removeById(teamId);
+            searchBackend.deleteTeam(teamId);
         } else {
             // 如果队伍中有多人
             // 如果退出的是队长，则将队伍创建人转移给第二个加入的成员
@@ -320,15 +343,6 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
                 //如果 teamQueryRequest.getUserId() 不为 null 并且大于 0，则添加一个等于条件，查询 Team 表中的 userId 字段等于 teamQueryRequest.getUserId()。
                 //teamQueryRequest.getUserId() IS NOT NULL AND teamQueryRequest.getUserId() > 0 AND userId = teamQueryRequest.getUserId()
                 .eq(teamQueryRequest.getUserId() != null && teamQueryRequest.getUserId() > 0, Team::getUserId, teamQueryRequest.getUserId());// 根据创建者ID查询
-        // 如果存在搜索文本，对名称和描述进行模糊查询
-        if (StringUtils.isNotBlank(teamQueryRequest.getSearchText())) {
-            queryWrapper.lambda()
-                    //分别查询 Team 表中的 name 和 description 字段是否包含 teamQueryRequest.getSearchText()
-                    //teamQueryRequest.getSearchText() IS NOT NULL AND (name LIKE '%teamQueryRequest.getSearchText%' OR description LIKE '%teamQueryRequest.getSearchText%')
-                    .like(Team::getName, teamQueryRequest.getSearchText())
-                    .or()
-                    .like(Team::getDescription, teamQueryRequest.getSearchText());
-        }
         // 过滤未过期或永久有效的队伍
         //WHERE expireTime > CURRENT_TIMESTAMP OR expireTime IS NULL; 查询Team表中expireTime字段大于当前时间或者为空的记录
         queryWrapper.lambda()
@@ -348,8 +362,8 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
             // 如果状态是 PUBLIC 或 SECRET，那么在 queryWrapper 中添加一个查询条件
             queryWrapper.lambda().eq(Team::getStatus, status);
         }
-        // 执行查询获取队伍列表
-        List<Team> teamList= this.list(queryWrapper);
+        // 执行查询获取队伍列表，如果存在搜索文本，在全文索引中搜索名称和描述，再按相关度返回
+        List<Team> teamList = listTeams(teamQueryRequest.getSearchText(), queryWrapper);
         // 如果没有查询到任何队伍，直接返回空列表
         if (CollectionUtils.isEmpty(teamList)) {
             return new ArrayList<>();
@@ -453,13 +467,6 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
     public List<TeamUserVO> searchTeams(TeamQueryRequest teamQueryRequest) {
         Long userId = teamQueryRequest.getUserId();
         QueryWrapper<Team> queryWrapper = new QueryWrapper<>();
-        // 关键词查询
-        if (StringUtils.isNotBlank(teamQueryRequest.getSearchText())) {
-            queryWrapper.lambda()
-                    .like(Team::getName, teamQueryRequest.getSearchText())
-                    .or()
-                    .like(Team::getDescription, teamQueryRequest.getSearchText());
-        }
         // 非过期队伍
         queryWrapper.lambda().and(qw -> qw.gt(Team::getExpireTime, new Date()).or().isNull(Team::getExpireTime));
         Integer status = teamQueryRequest.getStatus();
@@ -468,11 +475,58 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
             queryWrapper.lambda().eq(Team::getStatus, status);
         }
         queryWrapper.lambda().in(Team::getId, teamQueryRequest.getIdList());
-        List<Team> teamList = this.list(queryWrapper);
+        // 关键词查询
+        List<Team> teamList = listTeams(teamQueryRequest.getSearchText(), queryWrapper);
         List<TeamUserVO> teamUserVO = getTeamUserVO(teamList, userId);
         return teamUserVO;
     }
 
+    /**
+     * 查询满足条件的队伍，有搜索文本时再按关键词过滤队伍名称和描述
+     * 全文索引可用时按相关度分批取出命中的队伍 id，每批加上其他查询条件在数据库中过滤，
+     * 直到凑够 maxTeamHits 个或没有更多命中；否则退回到模糊查询
+     *
+     * @param searchText
+     * @param queryWrapper 除关键词外的查询条件
+     * @return 有搜索文本且使用全文索引时按相关度降序
+     */
+    private List<Team> listTeams(String searchText, QueryWrapper<Team> queryWrapper) {
+        if (StringUtils.isBlank(searchText)) {
+            return this.list(queryWrapper);
+        }
+        if (!searchBackend.isReady()) {
+            queryWrapper.lambda().and(qw -> qw.like(Team::getName, searchText).or().like(Team::getDescription, searchText));
+            return this.list(queryWrapper);
+        }
+        List<Team> teamList = new ArrayList<>();
+        for (long pageNum = 1; teamList.size() < maxTeamHits; pageNum++) {
+            List<Long> searchIdList = searchBackend.searchTeams(searchText, pageNum, maxTeamHits).getRecords();
+            if (searchIdList.isEmpty()) {
+                break;
+            }
+            // 每批复制一份查询条件，只追加本批的队伍 id
+            QueryWrapper<Team> batchQueryWrapper = SerializationUtils.clone(queryWrapper);
+            batchQueryWrapper.lambda().in(Team::getId, searchIdList);
+            teamList.addAll(sortBySearchIds(this.list(batchQueryWrapper), searchIdList));
+            if (searchIdList.size() < maxTeamHits) {
+                break;
+            }
+        }
+        return teamList.size() > maxTeamHits ? new ArrayList<>(teamList.subList(0, maxTeamHits)) : teamList;
+    }
+
+    /**
+     * 按全文搜索的相关度排序
+     */
+    private List<Team> sortBySearchIds(List<Team> teamList, List<Long> searchIdList) {
+        Map<Long, Integer> rankMap = new HashMap<>();
+        for (int i = 0; i < searchIdList.size(); i++) {
+            rankMap.put(searchIdList.get(i), i);
+        }
+        teamList.sort(Comparator.comparing(team -> rankMap.getOrDefault(team.getId(), Integer.MAX_VALUE)));
+        return teamList;
+    }
+
     /**
      * 获取脱敏后并且关联了队伍成员信息的TeamUserVO
      * @param teamList
@@ -544,7 +598,9 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         }
 
         // 删除队伍信息并返回删除结果
-        return this.removeById(teamId);
+        boolean result = this.removeById(teamId);
+        searchBackend.deleteTeam(teamId);
+        return result;
     }
 
     /**
@@ -0,0 +1,154 @@
+package com.treay.yujian.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.treay.yujian.common.ErrorCode;
+import com.treay.yujian.exception.BusinessException;
+import com.treay.yujian.mapper.UserFriendMapper;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.model.domain.UserFriend;
+import com.treay.yujian.service.UserFriendService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 用户好友关系服务实现类
+ *
+ * @author Treay
+ */
+@Service
+@Slf4j
+public class UserFriendServiceImpl extends ServiceImpl<UserFriendMapper, UserFriend>
+        implements UserFriendService {
+
+    /**
+     * 是否只从 user_friend 表读取好友（回填完成后打开）
+     */
+    @Value("${yujian.user-friend.read-enabled:false}")
+    private boolean readEnabled;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        if (userId == friendId) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        List<UserFriend> userFriendList = new ArrayList<>(2);
+        userFriendList.add(newUserFriend(userId, friendId));
+        userFriendList.add(newUserFriend(friendId, userId));
+        this.baseMapper.insertIgnoreBatch(userFriendList);
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        QueryWrapper<UserFriend> queryWrapper = new QueryWrapper<>();
+        queryWrapper.and(wrapper -> wrapper.eq("userId", userId).eq("friendId", friendId))
+                .or(wrapper -> wrapper.eq("userId", friendId).eq("friendId", userId));
+        this.remove(queryWrapper);
+    }
+
+    @Override
+    public Page<Long> pageFriendIds(long userId, long pageNum, long pageSize) {
+        if (readEnabled) {
+            // 走 unique_user_friend 索引，只查当前页
+            QueryWrapper<UserFriend> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("friendId");
+            queryWrapper.eq("userId", userId);
+            queryWrapper.orderByAsc("friendId");
+            Page<UserFriend> userFriendPage = this.page(new Page<>(pageNum, pageSize), queryWrapper);
+            Page<Long> friendIdPage = new Page<>(pageNum, pageSize, userFriendPage.getTotal());
+            friendIdPage.setRecords(userFriendPage.getRecords().stream()
+                    .map(UserFriend::getFriendId)
+                    .collect(Collectors.toList()));
+            return friendIdPage;
+        }
+        // 回填完成前：表中的好友 + JSON 中的好友
+        TreeSet<Long> friendIdSet = new TreeSet<>(listFriendIds(userId));
+        User user = userMapper.selectOne(new QueryWrapper<User>().select("id", "friendId").eq("id", userId));
+        if (user != null) {
+            friendIdSet.addAll(parseFriendIds(user.getFriendId()));
+        }
+        friendIdSet.remove(userId);
+        List<Long> friendIdList = new ArrayList<>(friendIdSet);
+        Page<Long> friendIdPage = new Page<>(pageNum, pageSize, friendIdList.size());
+        long from = (pageNum - 1) * pageSize;
+        if (from >= friendIdList.size()) {
+            friendIdPage.setRecords(new ArrayList<>());
+            return friendIdPage;
+        }
+        int to = (int) Math.min(from + pageSize, friendIdList.size());
+        friendIdPage.setRecords(new ArrayList<>(friendIdList.subList((int) from, to)));
+        return friendIdPage;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public long backfillUserFriends(long lastUserId, int batchSize) {
+        // 锁住这批用户，删除好友时会先改写 JSON，等待回填完成后再删除表中的关系，已删除的好友不会被回填回来
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "friendId");
+        queryWrapper.gt("id", lastUserId);
+        queryWrapper.orderByAsc("id");
+        queryWrapper.last("limit " + batchSize + " for update");
+        List<User> userList = userMapper.selectList(queryWrapper);
+        if (userList.isEmpty()) {
+            return -1;
+        }
+        List<UserFriend> userFriendList = new ArrayList<>();
+        for (User user : userList) {
+            for (Long friendId : parseFriendIds(user.getFriendId())) {
+                if (friendId == null || friendId <= 0 || friendId.equals(user.getId())) {
+                    continue;
+                }
+                // 两个方向都写入，修复 JSON 中单方面的好友
+                userFriendList.add(newUserFriend(user.getId(), friendId));
+                userFriendList.add(newUserFriend(friendId, user.getId()));
+            }
+        }
+        if (!userFriendList.isEmpty()) {
+            this.baseMapper.insertIgnoreBatch(userFriendList);
+        }
+        return userList.get(userList.size() - 1).getId();
+    }
+
+    private List<Long> listFriendIds(long userId) {
+        QueryWrapper<UserFriend> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("friendId");
+        queryWrapper.eq("userId", userId);
+        return this.listObjs(queryWrapper, friendId -> ((Number) friendId).longValue());
+    }
+
+    private List<Long> parseFriendIds(String friendIds) {
+        if (StrUtil.isBlank(friendIds)) {
+            return Collections.emptyList();
+        }
+        try {
+            return JSONUtil.parseArray(friendIds).toList(Long.class);
+        } catch (Exception e) {
+            log.warn("illegal friendId json: {}", friendIds);
+            return Collections.emptyList();
+        }
+    }
+
+    private static UserFriend newUserFriend(long userId, long friendId) {
+        UserFriend userFriend = new UserFriend();
+        userFriend.setUserId(userId);
+        userFriend.setFriendId(friendId);
+        return userFriend;
+    }
+}
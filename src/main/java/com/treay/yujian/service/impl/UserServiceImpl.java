@@ -13,24 +13,40 @@ import com.treay.yujian.common.ErrorCode;
 import com.treay.yujian.common.ResultUtils;
 import com.treay.yujian.constant.UserConstant;
 import com.treay.yujian.exception.BusinessException;
+import com.treay.yujian.manager.FriendGraphManager;
+import com.treay.yujian.manager.HanLpAnalyzer;
+import com.treay.yujian.manager.LoginUserCache;
+import com.treay.yujian.manager.MatchIndex;
+import com.treay.yujian.manager.MatchListManager;
+import com.treay.yujian.manager.RecommendRanking;
+import com.treay.yujian.manager.RedisTagIndex;
+import com.treay.yujian.manager.SearchBackend;
+import com.treay.yujian.manager.SignedTokenManager;
+import com.treay.yujian.manager.TagDictionary;
+import com.treay.yujian.manager.TokenRenewer;
 import com.treay.yujian.mapper.UserMapper;
 import com.treay.yujian.model.domain.Notice;
 import com.treay.yujian.model.dto.UserDTO;
 import com.treay.yujian.model.enums.AddFriendStatusEnum;
 import com.treay.yujian.model.request.*;
+import com.treay.yujian.model.vo.FriendSuggestionVO;
 import com.treay.yujian.model.vo.TagVo;
 import com.treay.yujian.model.vo.UserSendMessage;
 import com.treay.yujian.service.NoticeService;
+import com.treay.yujian.service.TagService;
+import com.treay.yujian.service.UserFriendService;
+import com.treay.yujian.service.UserTagService;
 import com.treay.yujian.utils.AlgorithmUtils;
 import com.treay.yujian.model.domain.User;
 import com.treay.yujian.service.UserService;
 import com.treay.yujian.utils.EmailUtils;
+import com.treay.yujian.utils.TransactionUtils;
 import com.treay.yujian.utils.ValidateCodeUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.math3.util.Pair;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
@@ -42,7 +58,6 @@ import org.springframework.util.DigestUtils;
 import javax.annotation.Resource;
 import javax.mail.MessagingException;
 import javax.servlet.http.HttpServletRequest;
-import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -71,6 +86,13 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
      * 盐值，混淆密码
      */
     private static final String SALT = "yujian";
+
+    /**
+     * 脱敏后保留的字段（与 getSafetyUser 一致），批量查询用户时只查这些列
+     */
+    private static final String[] SAFETY_COLUMNS = {"id", "username", "friendId", "userAccount", "avatarUrl", "gender",
+            "phone", "email", "planetCode", "userRole", "userStatus", "createTime", "tags", "profile"};
+
     @Resource
     private RedisTemplate<String, Object> redisTemplate;
 
@@ -81,8 +103,60 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     @Lazy
     private NoticeService noticeService;
 
+    @Resource
+    private MatchIndex matchIndex;
+
+    @Resource
+    private MatchListManager matchListManager;
+
+    @Resource
+    private UserTagService userTagService;
+
+    /**
+     * 是否从 user_tag 表读取标签关系（回填完成后打开）
+     */
+    @Value("${yujian.user-tag.read-enabled:false}")
+    private boolean userTagReadEnabled;
+
+    @Resource
+    private RedisTagIndex redisTagIndex;
+
+    /**
+     * 是否使用 Redis 标签索引按标签搜索（索引重建并检查一致后打开）
+     */
+    @Value("${yujian.tag-index.redis-search:false}")
+    private boolean redisTagSearchEnabled;
+
+    @Resource
+    private SearchBackend searchBackend;
+
+    @Resource
+    private HanLpAnalyzer hanLpAnalyzer;
+
+    @Resource
+    private TagService tagService;
+
+    @Resource
+    private RecommendRanking recommendRanking;
+
+    @Resource
+    private LoginUserCache loginUserCache;
+
+    @Resource
+    private SignedTokenManager signedTokenManager;
+
+    @Resource
+    private TokenRenewer tokenRenewer;
+
+    @Resource
+    private UserFriendService userFriendService;
+
+    @Resource
+    private FriendGraphManager friendGraphManager;
+
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public long userRegister(String userAccount,String userEmail, String code, String userPassword, String checkPassword) {
 
         // 涉及查询数据库的判断要往后放，
@@ -169,6 +243,16 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         user.setPlanetCode(planetCode);
 
         this.updateById(user);
+        // 双写用户标签关系表
+        userTagService.saveUserTags(user.getId(), user.getTags());
+        redisTagIndex.updateUserTags(user.getId(), null, user.getTags());
+        // 刷新匹配索引
+        TransactionUtils.afterCommit(() -> matchIndex.updateUser(user.getId(), user.getTags()));
+        // 新用户只有默认标签，记录为待处理会牵动几乎所有活跃用户的匹配列表；
+        // 不主动合并，其他用户的列表过期重新计算时自然会包含新用户
+        // 刷新全文索引
+        searchBackend.indexUser(user);
+        recommendRanking.addUser(user.getId());
 
         return user.getId();
     }
@@ -197,10 +281,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         String encryptPassword = DigestUtils.md5DigestAsHex((SALT + userPassword).getBytes());
 
         String token = userAccount + "-" + uuid;
-        // 从缓存中查询用户是否存在
-        User cashUser = (User) redisTemplate.opsForHash().get(TOKEN_KEY + uuid, userAccount);
+        // 从缓存中查询用户是否存在（签名令牌模式下每次登录签发新令牌）
+        User cashUser = signedTokenManager.isEnabled() ? null
+                : (User) redisTemplate.opsForHash().get(TOKEN_KEY + uuid, userAccount);
         if (cashUser != null) {
-            redisTemplate.expire(TOKEN_KEY + uuid, 10, TimeUnit.MINUTES);
+            tokenRenewer.touch(uuid);
             return token;
         }
 
@@ -217,13 +302,16 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 
         // 3. 用户脱敏
         User safetyUser = getSafetyUser(user);
+        if (signedTokenManager.isEnabled()) {
+            return userAccount + "-" + signedTokenManager.issue(safetyUser);
+        }
 
         // 缓存
         String newUuid = UUID.randomUUID().toString().replace("-", "");
         token = userAccount + "-" + newUuid;
         // 4. 存储用户信息到Redis中,设置key过期时间和token过期时间
         redisTemplate.opsForHash().put(TOKEN_KEY + newUuid, safetyUser.getUserAccount(), safetyUser);
-        redisTemplate.expire(TOKEN_KEY + newUuid, 10, TimeUnit.MINUTES);
+        redisTemplate.expire(TOKEN_KEY + newUuid, tokenRenewer.getSessionTtlMinutes(), TimeUnit.MINUTES);
         return token;
     }
 
@@ -258,7 +346,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 
 
     /**
-     * 根据标签搜索用户（内存过滤）
+     * 根据标签搜索用户（内存倒排索引求交集后分页）
      *
      * @param byTagsRequest 用户要拥有的标签
      * @return
@@ -268,34 +356,95 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (com.baomidou.mybatisplus.core.toolkit.CollectionUtils.isEmpty(byTagsRequest.getTagNameList())) {
             throw new BusinessException(ErrorCode.NULL_ERROR);
         }
-        Gson gson = new Gson();
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        for (String tagName : byTagsRequest.getTagNameList()) {
-            queryWrapper = queryWrapper.like("tags", tagName);
+        // 未传分页参数时与 PageRequest 的默认值一致
+        long pageSize = byTagsRequest.getPageSize() > 0 ? byTagsRequest.getPageSize() : 10;
+        long pageNum = byTagsRequest.getPageNum() > 0 ? byTagsRequest.getPageNum() : 1;
+        Set<String> tagNameSet = new LinkedHashSet<>(byTagsRequest.getTagNameList());
+        long from = (pageNum - 1) * pageSize;
+        Page<User> userPage;
+        List<Long> pageUserIdList;
+        if (redisTagSearchEnabled) {
+            // Redis 中各标签的用户集合求交集，结果排序后短时间缓存
+            Page<Long> userIdPage = redisTagIndex.search(tagNameSet, pageNum, pageSize);
+            userPage = new Page<>(pageNum, pageSize, userIdPage.getTotal());
+            pageUserIdList = userIdPage.getRecords();
+        } else if (userTagReadEnabled) {
+            // user_tag 表按索引求交集并分页
+            userPage = new Page<>(pageNum, pageSize, userTagService.countUsersByTags(tagNameSet));
+            pageUserIdList = from >= userPage.getTotal()
+                    ? new ArrayList<>()
+                    : userTagService.listUserIdsByTags(tagNameSet, from, pageSize);
+        } else {
+            // 同时拥有所有标签的用户 id（按 id 升序），总数即为准确的 total
+            long[] matchUserIds = matchIndex.searchByTags(tagNameSet);
+            userPage = new Page<>(pageNum, pageSize, matchUserIds.length);
+            int to = (int) Math.min(from + pageSize, matchUserIds.length);
+            pageUserIdList = new ArrayList<>();
+            for (long i = from; i < to; i++) {
+                pageUserIdList.add(matchUserIds[(int) i]);
+            }
         }
+        // 只查询当前页的用户，按 id 顺序返回
+        userPage.setRecords(listSafetyUsersByIds(pageUserIdList));
+        return userPage;
+    }
 
-        Page<User> userPage = this.page(new Page<>(byTagsRequest.getPageNum(), byTagsRequest.getPageSize()), queryWrapper);
-        List<User> newUserList = userPage.getRecords().stream()
-                .filter(
-                        user -> {
-                            String tagsStr = user.getTags();
-                            Set<String> tagList =
-                                    gson.fromJson(tagsStr, new TypeToken<Set<String>>() {
-                                    }.getType());
-                            tagList = Optional.ofNullable(tagList).orElse(new HashSet<>());
-                            for (String tagName : byTagsRequest.getTagNameList()) {
-                                if (!tagList.contains(tagName)) {
-                                    return false;
-                                }
-                            }
-                            return true;
-                        })
-                .map(this::getSafetyUser)
-                .collect(Collectors.toList());
-        userPage.setRecords(newUserList);
+    /**
+     * 按昵称和简介搜索用户
+     *
+     * @param byTextRequest 搜索文本
+     * @return 按相关度排序
+     */
+    @Override
+    public Page<User> searchUsersByText(SearchUserByTextRequest byTextRequest) {
+        if (StringUtils.isBlank(byTextRequest.getSearchText())) {
+            throw new BusinessException(ErrorCode.NULL_ERROR);
+        }
+        long pageSize = byTextRequest.getPageSize() > 0 ? byTextRequest.getPageSize() : 10;
+        long pageNum = byTextRequest.getPageNum() > 0 ? byTextRequest.getPageNum() : 1;
+        String searchText = byTextRequest.getSearchText();
+        if (!searchBackend.isReady()) {
+            // 全文索引还在重建，退回到模糊查询
+            QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+            queryWrapper.lambda().and(qw -> qw.like(User::getUsername, searchText).or().like(User::getProfile, searchText));
+            Page<User> userPage = this.page(new Page<>(pageNum, pageSize), queryWrapper);
+            userPage.setRecords(userPage.getRecords().stream().map(this::getSafetyUser).collect(Collectors.toList()));
+            return userPage;
+        }
+        Page<Long> userIdPage = searchBackend.searchUsers(searchText, pageNum, pageSize);
+        Page<User> userPage = new Page<>(pageNum, pageSize, userIdPage.getTotal());
+        // 只查询当前页的用户，按相关度顺序返回
+        userPage.setRecords(listSafetyUsersByIds(userIdPage.getRecords()));
         return userPage;
     }
 
+    /**
+     * 按 id 批量查询用户并脱敏（一次 IN 查询），按传入的 id 顺序返回，已删除的用户被跳过
+     *
+     * @param userIdList
+     * @return
+     */
+    private List<User> listSafetyUsersByIds(List<Long> userIdList) {
+        if (userIdList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 只查询脱敏后保留的字段
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select(SAFETY_COLUMNS);
+        queryWrapper.in("id", userIdList);
+        Map<Long, User> userMap = this.list(queryWrapper)
+                .stream()
+                .collect(Collectors.toMap(User::getId, this::getSafetyUser));
+        List<User> userList = new ArrayList<>(userIdList.size());
+        for (Long userId : userIdList) {
+            User user = userMap.get(userId);
+            if (user != null) {
+                userList.add(user);
+            }
+        }
+        return userList;
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public int updateUser(UserDTO userDTO, User loginUser) {
@@ -330,25 +479,18 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (StringUtils.isNotBlank(userDTO.getProfile())) {
             oldUser.setProfile(userDTO.getProfile());
         }
-
+        // 不回写查询出的更新时间，由数据库刷新，其他实例按 updateTime 同步全文索引
+        oldUser.setUpdateTime(null);
         int result = userMapper.updateById(oldUser);
+        searchBackend.indexUser(oldUser);
         // 删除缓存
         String uuid = userDTO.getUuid();
         String currentUserAccount = userDTO.getCurrentUserAccount();
-        String matchKey = USER_MATCH_KEY + loginUser.getId();
-        String recommendKey = USER_SEARCH_KEY + loginUser.getId();
         CurrentUserRequest currentUserRequest = new CurrentUserRequest();
         currentUserRequest.setUserAccount(currentUserAccount);
         currentUserRequest.setUuid(uuid);
         try {
             refreshCache(currentUserRequest);
-            if (redisTemplate.hasKey(matchKey)) {
-                redisTemplate.delete(matchKey);
-            }
-            if (redisTemplate.hasKey(recommendKey)) {
-                redisTemplate.delete(recommendKey);
-            }
-
         } catch (Exception e) {
             log.error("redis error");
             throw new BusinessException(ErrorCode.SYSTEM_ERROR);
@@ -362,16 +504,61 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 
     @Override
     public User getLoginUser(String userAccount, String uuid) {
-        // 从Redis中查询用户是否存在  opsForHash() 返回一个操作redis 中hash 的类 包含好多使用方法
-        User cashUser = (User) redisTemplate.opsForHash().get(TOKEN_KEY + uuid, userAccount);
+        if (signedTokenManager.isEnabled()) {
+            return getSignedLoginUser(userAccount, uuid);
+        }
+        // 先查本地缓存，没有时再从Redis中查询用户是否存在
+        User cashUser = loginUserCache.get(userAccount, uuid);
         if (cashUser == null) {
             throw new BusinessException(ErrorCode.NO_AUTH);
-        } else {
-
         }
+        // 滑动续期，由后台任务批量执行
+        tokenRenewer.touch(uuid);
         return cashUser;
     }
 
+    @Override
+    public int userLogout(String userAccount, String uuid) {
+        if (StringUtils.isAnyBlank(userAccount, uuid)) {
+            throw new BusinessException(ErrorCode.NULL_ERROR, "UUid为空");
+        }
+        if (signedTokenManager.isEnabled()) {
+            // 签名令牌按用户吊销，该用户所有设备上的令牌都会失效
+            Long userId = signedTokenManager.verify(uuid);
+            if (userId == null) {
+                return 0;
+            }
+            signedTokenManager.revoke(userId);
+            loginUserCache.invalidateUser(userId);
+            return 1;
+        }
+        int result = Math.toIntExact(redisTemplate.opsForHash().delete(TOKEN_KEY + uuid, userAccount));
+        loginUserCache.invalidate(userAccount, uuid);
+        return result;
+    }
+
+    /**
+     * 校验签名令牌，令牌中的用户 id 对应的用户信息先查本地缓存，没有时查询数据库
+     *
+     * @param userAccount
+     * @param token
+     * @return
+     */
+    private User getSignedLoginUser(String userAccount, String token) {
+        Long userId = signedTokenManager.verify(token);
+        if (userId == null) {
+            throw new BusinessException(ErrorCode.NO_AUTH);
+        }
+        User loginUser = loginUserCache.getUser(userId, id -> {
+            User user = this.getById(id);
+            return user == null ? null : getSafetyUser(user);
+        });
+        if (loginUser == null || !loginUser.getUserAccount().equals(userAccount)) {
+            throw new BusinessException(ErrorCode.NO_AUTH);
+        }
+        return loginUser;
+    }
+
     /**
      * 是否为管理员
      *
@@ -398,52 +585,41 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     }
 
     @Override
-    public List<User> matchUsers(long num, User loginUser) {
-
-        // 有缓存读缓存
-        String key = USER_MATCH_KEY + loginUser.getId();
-        List<User> cacheUserList = (List<User>) redisTemplate.opsForValue().get(key);
-        if (com.baomidou.mybatisplus.core.toolkit.CollectionUtils.isNotEmpty(cacheUserList)) {
-            return cacheUserList;
+    public List<User> matchUsers(MatchUserRequest matchUserRequest, User loginUser) {
+        // 未传分页参数时兼容旧的 num 参数，即返回前 num 个
+        int pageSize = matchUserRequest.getPageSize() != null ? matchUserRequest.getPageSize() : matchUserRequest.getNum();
+        int pageNum = matchUserRequest.getPageNum() != null ? matchUserRequest.getPageNum() : 1;
+        if (pageSize <= 0 || pageNum <= 0) {
+            return new ArrayList<>();
+        }
+        long pageEnd = (long) pageNum * pageSize;
+        if (pageEnd > Integer.MAX_VALUE) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分页参数过大");
+        }
+        int to = (int) pageEnd;
+        int from = to - pageSize;
+        Double recall = matchUserRequest.getRecall();
+        // 召回率小于 1 时使用近似匹配
+        boolean approximate = recall != null && recall > 0 && recall < 1;
+
+        // 从常驻内存的匹配索引中取出最相似的 topN 用户 id（已按相似度排序）
+        // 精确匹配直接读取后台维护的匹配列表（深度为 list-size），超过列表深度或近似匹配时实时计算
+        long[] topUserIds;
+        if (approximate) {
+            topUserIds = matchIndex.matchApproximate(loginUser.getId(), loginUser.getTags(), to, recall);
+        } else if (to > matchListManager.getListSize()) {
+            topUserIds = matchIndex.match(loginUser.getId(), loginUser.getTags(), to);
+        } else {
+            topUserIds = matchListManager.getMatchList(loginUser.getId()).getUserIds();
         }
-
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        queryWrapper.select("id", "tags");
-        queryWrapper.isNotNull("tags");
-        // 其他用户标签
-        List<User> userList = this.list(queryWrapper);
-
-        String tags = loginUser.getTags();
-        Gson gson = new Gson();
-        // 登录用户标签 把标签转换成list<string>
-        List<String> tagList = gson.fromJson(tags, new TypeToken<List<String>>() {
-        }.getType());
-        // 其中每个Pair包含一个User对象和一个Long型的距离值。这个距离值用于衡量用户之间的标签相似度，越小表示越相似。
-        Queue<Pair<User, Long>> priorityQueue = new PriorityQueue<>(
-                Comparator.comparing(Pair::getValue)
-        );
-
-        for (User user : userList) {
-            String userTags = user.getTags();
-            // 无标签或者为当前用户自己，直接跳过
-            if (StringUtils.isBlank(userTags) || user.getId() == loginUser.getId()) {
-                continue;
-            }
-            List<String> userTagList = gson.fromJson(userTags, new TypeToken<List<String>>() {}.getType());
-            long distance = AlgorithmUtils.minDistance(tagList, userTagList);
-            // 如果队列未满或者当前用户的相似度更优，则入队并可能移除队尾元素以保持队列大小
-            if (priorityQueue.size() < num || distance < priorityQueue.peek().getValue()) {
-                if (priorityQueue.size() == num) {
-                    priorityQueue.poll(); // 移除当前队列中相似度最大的用户
-                }
-                priorityQueue.offer(new Pair<>(user, distance));
-            }
+        // 只查询当前页的用户
+        if (from >= topUserIds.length) {
+            return new ArrayList<>();
         }
-
-        // 从优先队列中提取结果，直接获得topN的用户ID列表
-        List<Long> userIdList = new ArrayList<>(priorityQueue.size());
-        for (Pair<User, Long> pair : priorityQueue) {
-            userIdList.add(pair.getKey().getId());
+        long[] matchUserIds = Arrays.copyOfRange(topUserIds, from, Math.min(to, topUserIds.length));
+        List<Long> userIdList = new ArrayList<>(matchUserIds.length);
+        for (long matchUserId : matchUserIds) {
+            userIdList.add(matchUserId);
         }
 
         // 使用userIdList查询并转换为最终的User列表
@@ -459,14 +635,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         // 基于于之前得到的ID列表顺序，从分组后的映射中取出每个用户的详细信息，组装成最终返回的finalUserList。
         List<User> finalUserList = new ArrayList<>();
         for (Long userId : userIdList) {
-            finalUserList.add(userIdUserListMap.get(userId).get(0));
-        }
-
-        //写缓存
-        try {
-            redisTemplate.opsForValue().set(key, finalUserList, 5, TimeUnit.MINUTES);
-        } catch (Exception e) {
-            log.error("redis set key error");
+            // 索引中存在但已被删除的用户直接跳过
+            List<User> matchUserList = userIdUserListMap.get(userId);
+            if (matchUserList != null) {
+                finalUserList.add(matchUserList.get(0));
+            }
         }
         return finalUserList;
     }
@@ -560,6 +733,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         String encryptPassword = DigestUtils.md5DigestAsHex((SALT + userPassword).getBytes());
         user.setUserPassword(encryptPassword);
         int role = userMapper.updateById(user);
+        if (role > 0 && signedTokenManager.isEnabled()) {
+            // 修改密码后之前签发的令牌全部失效
+            signedTokenManager.revoke(user.getId());
+            loginUserCache.invalidateUser(user.getId());
+        }
         if (role > 0) {
             return ResultUtils.success(true);
         } else {
@@ -568,85 +746,66 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     }
 
 
-    public TagVo getTags(String oldTags, HttpServletRequest request) {
-        if (request == null) {
-            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+    @Override
+    public TagVo getTags(User loginUser) {
+        if (loginUser == null) {
+            throw new BusinessException(ErrorCode.NOT_LOGIN);
         }
         // 已有标签
         Gson gson = new Gson();
-        List<String> oldTagList = gson.fromJson(oldTags, new TypeToken<List<String>>() {
+        List<String> oldTagList = gson.fromJson(loginUser.getTags(), new TypeToken<List<String>>() {
         }.getType());
-        // 生成热门标签
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        queryWrapper.isNotNull("tags");
-        List<User> users = this.list(queryWrapper);
-        Map<String, Integer> map = new HashMap<>();
-        for (User user : users) {
-            String Tags = user.getTags();
-            List<String> list = Arrays.asList(Tags);
-            if (list == null) {
-                continue;
-            }
-            List<String> tagList = gson.fromJson(Tags, new TypeToken<List<String>>() {
-            }.getType());
-            if (tagList != null) {
-                for (String tag : tagList) {
-                    if (map.get(tag) == null) {
-                        map.put(tag, 1);
-                    } else {
-                        map.put(tag, map.get(tag) + 1);
-                    }
-                }
-            }
-        }
-        Map<Integer, List<String>> Map = new TreeMap<>(new Comparator<Integer>() {
-            @Override
-            public int compare(Integer key1, Integer key2) {
-                //降序排序
-                return key2.compareTo(key1);
-            }
-        });
-        map.forEach((value, key) -> {
-            if (Map.size() == 0) {
-                Map.put(key, Arrays.asList(value));
-            } else if (Map.get(key) == null) {
-                Map.put(key, Arrays.asList(value));
-            } else {
-                List<String> list = new ArrayList(Map.get(key));
-                list.add(value);
-                Map.put(key, list);
-            }
-        });
-        Set<String> set = new HashSet<>();
-        for (Map.Entry<Integer, List<String>> entry : Map.entrySet()) {
-
-            log.info("set.size():"+set.size());
-            List<String> value = entry.getValue();
-            if (oldTags == null) {
-                for (String tag : value) {
-                    set.add(tag);
-                    if (set.size() >= 20) {
-                        break;
-                    }
-                }
-            }
-            for (String tag : value) {
-                if (!oldTags.contains(tag)) {
-                    set.add(tag);
-                    if (set.size() >= 20) {
-                        break;
-                    }
-                }
+        // 简介中的关键词是已有标签的，排在最前面
+        Set<String> recommendTagSet = new LinkedHashSet<>(getProfileTags(loginUser.getProfile(), oldTagList));
+        // 标签热度由每次修改标签增量维护，这里只读取前 20 个
+        List<String> hotTags = redisTagIndex.topTags(20, oldTagList);
+        if (hotTags == null) {
+            // 热度正在由其他实例初始化
+            hotTags = new ArrayList<>();
+            if (userTagReadEnabled) {
+                int oldTagCount = oldTagList == null ? 0 : oldTagList.size();
+                hotTags = userTagService.listHotTagNames(20 + oldTagCount)
+                        .stream()
+                        .filter(tag -> oldTagList == null || !oldTagList.contains(tag))
+                        .limit(20)
+                        .collect(Collectors.toList());
             }
         }
-
-        List<String> RecommendTags = new ArrayList<String>(set);
+        recommendTagSet.addAll(hotTags);
         TagVo tagVo = new TagVo();
         tagVo.setOldTags(oldTagList);
-        tagVo.setRecommendTags(RecommendTags);
+        tagVo.setRecommendTags(recommendTagSet.stream().limit(20).collect(Collectors.toList()));
         return tagVo;
     }
 
+    /**
+     * 从简介中提取关键词，只保留标签字典中已有的标签（按规范标签名返回），不扫描用户表
+     *
+     * @param profile
+     * @param oldTagList 用户已有的标签
+     * @return
+     */
+    private List<String> getProfileTags(String profile, List<String> oldTagList) {
+        List<String> profileTags = new ArrayList<>();
+        if (StringUtils.isBlank(profile)) {
+            return profileTags;
+        }
+        TagDictionary tagDictionary = tagService.getTagDictionary();
+        Set<Integer> oldTagIds = new HashSet<>();
+        if (oldTagList != null) {
+            for (String oldTag : oldTagList) {
+                oldTagIds.add(tagDictionary.find(oldTag));
+            }
+        }
+        for (String keyword : hanLpAnalyzer.extractKeywords(profile, 10)) {
+            int tagId = tagDictionary.find(keyword);
+            if (tagId >= 0 && !oldTagIds.contains(tagId)) {
+                profileTags.add(tagDictionary.getTagName(tagId));
+            }
+        }
+        return profileTags;
+    }
+
     /**
      * 添加好友
      * @param addFriendRequest
@@ -715,6 +874,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
                 user.setAddCount(1);
             }
             this.updateById(user); //调用this.updateById(user)方法更新数据库中用户对象user的信息。
+            recommendRanking.incrementAddCount(recipientId, 1);
             return true;
         } finally {
             if (lock.isHeldByCurrentThread()) { //判断当前线程是否持有锁，如果是则释放锁。
@@ -762,8 +922,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         noticeService.updateById(notice);
 
         //双方好友列表id都删除对方
+        // 先改写 JSON 锁住双方用户，回填任务不会再把已删除的好友写回好友关系表
         removeFriendFromList(sender, recipientId);
         removeFriendFromList(recipient, senderId);
+        userFriendService.removeFriend(senderId, recipientId);
+        friendGraphManager.removeFriend(senderId, recipientId);
 
         return true;
     }
@@ -805,9 +968,12 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
             }
         }//总结：这整段代码的目的是在满足特定条件下更新notice对象的属性并进行错误处理。
 
-        // 在用户表中 好友列表互相添加id
-        addFriendList(this.getById(senderId), recipientId); //senderId对应的用户添加到recipientId的好友列表中。
-        addFriendList(this.getById(recipientId), senderId); //recipientId对应的用户添加到senderId的好友列表中
+        // 好友关系表中互相添加（不再追加 user.friendId）
+        if (this.getById(senderId) == null || this.getById(recipientId) == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "发件人或收件人不存在");
+        }
+        userFriendService.addFriend(senderId, recipientId);
+        friendGraphManager.addFriend(senderId, recipientId);
         return true;
     }
 
@@ -843,28 +1009,48 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 
 
     @Override
-    public List<User> listFriend(User loginUser) {
-        // 获取用户当前信息，通过数据库查询，最新数据
-        User user = this.getById(loginUser.getId());
-        String friendIdList = user.getFriendId();//从对象用户中获取含有信息的字符串
-        //初始化一个ArrayList<User>来存储好友对象。
-        ArrayList<User> userArrayList = new ArrayList<>();
-        //使用StrUtil.isBlank方法检查friendId是否为空或仅包含空白字符。
-        //如果是，直接返回一个空的ArrayList<User>，因为这意味着用户目前没有任何好友
-        //StrUtil.isBlank方法是类似字符串处理工具类中的一个实用方法，用于检查一个字符串是否为空或者仅仅包含空白字符，数据验证，确保字符串参数有效。
-        if (StrUtil.isBlank(friendIdList)) {
-            return userArrayList;
-        }
-        //如果friendId非空，使用JSONUtil.parseArray方法将字符串转换为JSONArray。
-        // 这通常是因为friendId是以JSON格式存储的一系列好友ID。
-        // JSONUtil.parseArray是Fastjson库中的一个方法，用于将JSON格式的字符串解析成一个JSONArray对象。
-        JSONArray jsonArray = JSONUtil.parseArray(friendIdList);
-        for (Object id : jsonArray) { //遍历JSONArray中的每个元素，每个元素是一个好友的ID。
-            //对每个好友ID调用getById方法，从数据库中获取对应用户的信息，并将其添加到userArrayList中。
-            // 将 Object 的id  强转为 Serializable 类  Serializable是个接口类
-            userArrayList.add(this.getById((Serializable) id));
-        }
-        return userArrayList;
+    public Page<User> listFriend(User loginUser, long pageNum, long pageSize) {
+        // 先分页查出好友 id，再用一次 IN 查询当前页的好友信息
+        Page<Long> friendIdPage = userFriendService.pageFriendIds(loginUser.getId(), pageNum, pageSize);
+        Page<User> friendPage = new Page<>(pageNum, pageSize, friendIdPage.getTotal());
+        friendPage.setRecords(listSafetyUsersByIds(friendIdPage.getRecords()));
+        return friendPage;
+    }
+
+    @Override
+    public List<FriendSuggestionVO> suggestFriends(User loginUser, int limit) {
+        // 好友图还没有加载完成时不推荐
+        if (!friendGraphManager.isReady()) {
+            return new ArrayList<>();
+        }
+        long[] userIds = new long[limit];
+        int[] mutualCounts = new int[limit];
+        int count = friendGraphManager.suggest(loginUser.getId(), limit, userIds, mutualCounts);
+        List<Long> userIdList = new ArrayList<>(count);
+        Map<Long, Integer> mutualCountMap = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            userIdList.add(userIds[i]);
+            mutualCountMap.put(userIds[i], mutualCounts[i]);
+        }
+        // 已注销的用户查不到，直接跳过
+        return listSafetyUsersByIds(userIdList).stream().map(user -> {
+            FriendSuggestionVO friendSuggestionVO = new FriendSuggestionVO();
+            friendSuggestionVO.setUser(user);
+            friendSuggestionVO.setMutualCount(mutualCountMap.get(user.getId()));
+            return friendSuggestionVO;
+        }).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> listMutualFriends(User loginUser, long userId) {
+        if (userId <= 0 || userId == loginUser.getId()) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        if (!friendGraphManager.isReady()) {
+            return new ArrayList<>();
+        }
+        long[] mutualFriendIds = friendGraphManager.getMutualFriends(loginUser.getId(), userId);
+        return listSafetyUsersByIds(Arrays.stream(mutualFriendIds).boxed().collect(Collectors.toList()));
     }
 
     /**
@@ -876,6 +1062,14 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     public boolean refreshCache(CurrentUserRequest currentUserRequest) {
         String userAccount = currentUserRequest.getUserAccount();
         String uuid = currentUserRequest.getUuid();
+        if (signedTokenManager.isEnabled()) {
+            // 签名令牌中只有用户 id，用户信息更新后删除各实例的本地缓存即可
+            Long userId = signedTokenManager.verify(uuid);
+            if (userId != null) {
+                loginUserCache.invalidateUser(userId);
+            }
+            return true;
+        }
         User cashUser = (User) redisTemplate.opsForHash().get(TOKEN_KEY + uuid, userAccount);
         // 先删除缓存
         try {
@@ -887,7 +1081,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         User safetyUser = this.getSafetyUser(user);
 
         redisTemplate.opsForHash().put(TOKEN_KEY + uuid, userAccount, safetyUser);
-        redisTemplate.expire(TOKEN_KEY + uuid, 10, TimeUnit.MINUTES);
+        redisTemplate.expire(TOKEN_KEY + uuid, tokenRenewer.getSessionTtlMinutes(), TimeUnit.MINUTES);
+        // 通知所有实例丢弃旧的登录信息
+        loginUserCache.invalidate(userAccount, uuid);
         return true;
     }
 
@@ -896,26 +1092,28 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     public int updateTags(UserDTO userDTO, User loginUser) {
         long userId = userDTO.getId();
         User oldUser = this.getById(userId);
+        String oldTags = oldUser.getTags();
         if (StringUtils.isNotBlank(userDTO.getTags())) {
             oldUser.setTags(userDTO.getTags());
         }
+        // 不回写查询出的更新时间，由数据库刷新，其他实例按 updateTime 同步标签修改
+        oldUser.setUpdateTime(null);
         int result = userMapper.updateById(oldUser);
+        // 双写用户标签关系表
+        userTagService.saveUserTags(oldUser.getId(), oldUser.getTags());
+        redisTagIndex.updateUserTags(oldUser.getId(), oldTags, oldUser.getTags());
+        // 事务提交后刷新匹配索引（回滚时索引不变），受影响用户的匹配列表由后台任务重新计算
+        long updatedUserId = oldUser.getId();
+        String newTags = oldUser.getTags();
+        TransactionUtils.afterCommit(() -> matchIndex.updateUser(updatedUserId, newTags));
+        matchListManager.markDirty(oldUser.getId(), oldTags);
 
         // 删除缓存
-        String matchKey = USER_MATCH_KEY + loginUser.getId();
-        String recommendKey = USER_SEARCH_KEY + loginUser.getId();
         CurrentUserRequest currentUserRequest = new CurrentUserRequest();
         currentUserRequest.setUserAccount(userDTO.getCurrentUserAccount());
         currentUserRequest.setUuid(userDTO.getUuid());
         try {
             refreshCache(currentUserRequest);
-            if (redisTemplate.hasKey(matchKey)) {
-                redisTemplate.delete(matchKey);
-            }
-            if (redisTemplate.hasKey(recommendKey)) {
-                redisTemplate.delete(recommendKey);
-            }
-
         } catch (Exception e) {
             log.error("redis delete key error:" + e.getMessage());
             throw new BusinessException(ErrorCode.SYSTEM_ERROR);
@@ -924,47 +1122,36 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     }
 
     @Override
-    public Page<User> recommend(long userId, long pageSize, long pageNum) {
-        // 创建分页对象
-        Page<User> userPage = new Page<>();
-
-        String key = USER_SEARCH_KEY + userId;
-        // 读取缓存
-        List<User> userList = (List<User>) redisTemplate.opsForValue().get(key);
-        // 如果缓存有数据，直接返回
-        if (!(CollectionUtils.isEmpty(userList))) {
-            userList = userList.stream()
-                    .filter(user -> user.getId() != userId)
-                    .collect(Collectors.toList());
-            userPage.setRecords(userList);
-            return userPage;
+    @Transactional(rollbackFor = Exception.class)
+    public boolean deleteUser(long userId) {
+        User user = this.getById(userId);
+        if (user == null) {
+            return false;
         }
+        boolean result = this.removeById(userId);
+        if (result) {
+            recommendRanking.removeUser(userId);
+            // 移出匹配索引，已保存的匹配列表中有该用户的由后台任务重新计算
+            TransactionUtils.afterCommit(() -> matchIndex.removeUser(userId));
+            matchListManager.markDirty(userId, user.getTags());
+        }
+        return result;
+    }
 
-        // 从数据库中获取所有用户列表
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().orderByDesc(User::getAddCount);
-        userList = this.list(queryWrapper);
-
-        // 过滤当前登录用户
-        userList = userList
-                .stream()
-                .filter(user -> user.getId() != userId)
-                .collect(Collectors.toList());
-
-        // 对用户进行脱敏处理
-        List<User> safetyUsers = userList.stream().map(this::getSafetyUser).collect(Collectors.toList());
-        // 设置分页信息
-        userPage.setRecords(safetyUsers);
-
-
-
-        // 写缓存
-        try {
-            redisTemplate.opsForValue().set(key, safetyUsers, 12, TimeUnit.HOURS);
-        } catch (Exception e) {
-            log.error("Error setting Redis key", e);
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR);
+    @Override
+    public Page<User> recommend(long userId, long pageSize, long pageNum) {
+        // 所有用户共用按 addCount 排序的排名，只截取当前页
+        Page<Long> userIdPage = recommendRanking.page(userId, pageNum, pageSize);
+        if (userIdPage == null) {
+            // 排名正在由其他实例初始化，直接分页查询数据库
+            QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+            queryWrapper.lambda().ne(User::getId, userId).orderByDesc(User::getAddCount);
+            Page<User> userPage = this.page(new Page<>(pageNum, pageSize), queryWrapper);
+            userPage.setRecords(userPage.getRecords().stream().map(this::getSafetyUser).collect(Collectors.toList()));
+            return userPage;
         }
+        Page<User> userPage = new Page<>(pageNum, pageSize, userIdPage.getTotal());
+        userPage.setRecords(listSafetyUsersByIds(userIdPage.getRecords()));
         return userPage;
     }
 
@@ -1036,26 +1223,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         }
     }
 
-
-    /**
-     * 添加好友到好友列表
-     *
-     * @param user
-     * @param friendId
-     */
-    private void addFriendList(User user, Long friendId) {
-        JSONArray friendIdJsonArray = StrUtil.isBlank(user.getFriendId()) ? new JSONArray() : JSONUtil.parseArray(user.getFriendId());
-        if (user.getId() == friendId){
-            throw  new BusinessException(ErrorCode.PARAMS_ERROR);
-        }
-        friendIdJsonArray.add(friendId);
-        user.setFriendId(JSONUtil.toJsonStr(friendIdJsonArray));
-        boolean updateResult = this.updateById(user);
-        if (!updateResult) {
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "更新好友列表失败");
-        }
-    }
-
 }
 
 
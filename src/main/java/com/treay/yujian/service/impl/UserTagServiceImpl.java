@@ -0,0 +1,153 @@
+package com.treay.yujian.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.mapper.UserTagMapper;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.model.domain.UserTag;
+import com.treay.yujian.service.TagService;
+import com.treay.yujian.service.UserTagService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 用户标签关系服务实现类
+ *
+ * @author Treay
+ */
+@Service
+@Slf4j
+public class UserTagServiceImpl extends ServiceImpl<UserTagMapper, UserTag>
+        implements UserTagService {
+
+    private static final Type TAG_LIST_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+
+    private final Gson gson = new Gson();
+
+    @Resource
+    private TagService tagService;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Override
+    public void saveUserTags(long userId, String tags) {
+        // 只记录标签表中已有的标签，用户自由填写的标签不写入标签表
+        Set<Long> newTagIds = new HashSet<>(tagService.getTagIds(parseTags(tags)).values());
+
+        QueryWrapper<UserTag> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "tagId");
+        queryWrapper.eq("userId", userId);
+        List<UserTag> oldUserTagList = this.list(queryWrapper);
+        Set<Long> oldTagIds = new HashSet<>();
+        List<Long> removeIdList = new ArrayList<>();
+        for (UserTag userTag : oldUserTagList) {
+            oldTagIds.add(userTag.getTagId());
+            if (!newTagIds.contains(userTag.getTagId())) {
+                removeIdList.add(userTag.getId());
+            }
+        }
+        if (!removeIdList.isEmpty()) {
+            this.removeByIds(removeIdList);
+        }
+        for (Long tagId : newTagIds) {
+            if (oldTagIds.contains(tagId)) {
+                continue;
+            }
+            UserTag userTag = new UserTag();
+            userTag.setUserId(userId);
+            userTag.setTagId(tagId);
+            this.baseMapper.insert(userTag);
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public long backfillUserTags(long lastUserId, int batchSize) {
+        // 锁住这批用户，回填期间用户修改标签会等待回填完成，之后的双写覆盖回填结果
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "tags");
+        queryWrapper.gt("id", lastUserId);
+        queryWrapper.orderByAsc("id");
+        queryWrapper.last("limit " + batchSize + " for update");
+        List<User> userList = userMapper.selectList(queryWrapper);
+        if (userList.isEmpty()) {
+            return -1;
+        }
+        for (User user : userList) {
+            saveUserTags(user.getId(), user.getTags());
+        }
+        return userList.get(userList.size() - 1).getId();
+    }
+
+    @Override
+    public List<Long> listUserIdsByTags(Collection<String> tagNameList, long offset, long pageSize) {
+        Set<Long> tagIds = resolveTagIds(tagNameList);
+        return tagIds == null ? new ArrayList<>() : this.baseMapper.selectUserIdsByTagIds(tagIds, offset, pageSize);
+    }
+
+    @Override
+    public long countUsersByTags(Collection<String> tagNameList) {
+        Set<Long> tagIds = resolveTagIds(tagNameList);
+        return tagIds == null ? 0 : this.baseMapper.countUsersByTagIds(tagIds);
+    }
+
+    @Override
+    public List<String> listHotTagNames(int limit) {
+        return this.baseMapper.selectHotTagNames(limit);
+    }
+
+    /**
+     * 标签名 => 去重后的标签 id（同义词、大小写不同的标签名对应同一个 id，去重后 HAVING COUNT(*) 才等于标签数）
+     *
+     * @param tagNameList
+     * @return 没有标签或有标签不在标签表中（交集为空）时返回 null
+     */
+    private Set<Long> resolveTagIds(Collection<String> tagNameList) {
+        Set<String> tagNameSet = tagNameList.stream()
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, Long> tagIdMap = tagService.getTagIds(tagNameSet);
+        if (tagNameSet.isEmpty() || tagIdMap.size() < tagNameSet.size()) {
+            return null;
+        }
+        return new HashSet<>(tagIdMap.values());
+    }
+
+    private Collection<String> parseTags(String tags) {
+        if (StringUtils.isBlank(tags)) {
+            return Collections.emptyList();
+        }
+        try {
+            List<String> tagList = gson.fromJson(tags, TAG_LIST_TYPE);
+            if (tagList == null) {
+                return Collections.emptyList();
+            }
+            return tagList.stream()
+                    .filter(StringUtils::isNotBlank)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        } catch (JsonSyntaxException e) {
+            log.warn("illegal tags json: {}", tags);
+            return Collections.emptyList();
+        }
+    }
+}
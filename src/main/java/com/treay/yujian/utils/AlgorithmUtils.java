@@ -2,6 +2,7 @@ package com.treay.yujian.utils;
 
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -23,6 +24,9 @@ public class AlgorithmUtils {
      * @return
      */
     public static int minDistance(List<String> tagList1, List<String> tagList2) {
+        // 排序副本，不修改调用方传入的列表
+        tagList1 = new ArrayList<>(tagList1);
+        tagList2 = new ArrayList<>(tagList2);
         Collections.sort(tagList1);
         Collections.sort(tagList2);
         int n = tagList1.size();
@@ -55,6 +59,176 @@ public class AlgorithmUtils {
         return d[n][m];
     }
 
+    /**
+     * 编辑距离算法（标签已转换为 int 编号的版本）
+     * 调用方需保证两个数组已按标签名排序，结果与 {@link #minDistance(List, List)} 一致
+     *
+     * @param tagIds1
+     * @param tagIds2
+     * @return
+     */
+    public static int minDistance(int[] tagIds1, int[] tagIds2) {
+        return minDistance(tagIds1, tagIds2, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 带上界的编辑距离算法（标签已转换为 int 编号的版本）
+     * 只保留两行 dp，缓冲区按线程复用，不产生额外分配；
+     * 一旦某一行的最小值已超过上界就提前结束（最终距离不可能小于任意一行的最小值）
+     *
+     * @param tagIds1
+     * @param tagIds2
+     * @param bound   上界，距离超过上界时不再关心具体值
+     * @return 距离不超过上界时返回准确距离，否则返回 bound + 1
+     */
+    public static int minDistance(int[] tagIds1, int[] tagIds2, int bound) {
+        int n = tagIds1.length;
+        int m = tagIds2.length;
+        int overBound = bound == Integer.MAX_VALUE ? bound : bound + 1;
+
+        if (n * m == 0) {
+            return Math.min(n + m, overBound);
+        }
+        // 长度差是距离的下界
+        if (Math.abs(n - m) > bound) {
+            return overBound;
+        }
+
+        int[][] rows = rowBuffer(m + 1);
+        int[] prev = rows[0];
+        int[] cur = rows[1];
+        for (int j = 0; j < m + 1; j++) {
+            prev[j] = j;
+        }
+
+        for (int i = 1; i < n + 1; i++) {
+            cur[0] = i;
+            int rowMin = i;
+            int tag = tagIds1[i - 1];
+            for (int j = 1; j < m + 1; j++) {
+                int left = prev[j] + 1;
+                int down = cur[j - 1] + 1;
+                int left_down = prev[j - 1];
+                if (tag != tagIds2[j - 1]) {
+                    left_down += 1;
+                }
+                int d = Math.min(left, Math.min(down, left_down));
+                cur[j] = d;
+                if (d < rowMin) {
+                    rowMin = d;
+                }
+            }
+            if (rowMin > bound) {
+                return overBound;
+            }
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return Math.min(prev[m], overBound);
+    }
+
+    /**
+     * 考虑标签层级的编辑距离代价（放大 2 倍以便用整数表示“半个”替换）
+     */
+    public static final int HIERARCHY_EDIT_COST = 2;
+
+    public static final int HIERARCHY_RELATED_COST = 1;
+
+    /**
+     * 考虑标签层级的带上界编辑距离算法
+     * 插入、删除、替换为无关标签的代价为 2，替换为父子标签或兄弟标签的代价为 1，相同标签为 0；
+     * 标签之间没有层级关系时结果恰好是 minDistance(int[], int[], int) 的 2 倍
+     *
+     * @param tagIds1
+     * @param tagIds2
+     * @param bound     上界，距离超过上界时不再关心具体值
+     * @param parentIds 标签编号 => 父标签编号（没有父标签为 -1）
+     * @return 距离不超过上界时返回准确距离，否则返回 bound + 1
+     */
+    public static int hierarchyMinDistance(int[] tagIds1, int[] tagIds2, int bound, int[] parentIds) {
+        int n = tagIds1.length;
+        int m = tagIds2.length;
+        int overBound = bound == Integer.MAX_VALUE ? bound : bound + 1;
+
+        if (n * m == 0) {
+            return Math.min((n + m) * HIERARCHY_EDIT_COST, overBound);
+        }
+        // 长度差是距离的下界
+        if ((long) Math.abs(n - m) * HIERARCHY_EDIT_COST > bound) {
+            return overBound;
+        }
+
+        int[][] rows = rowBuffer(m + 1);
+        int[] prev = rows[0];
+        int[] cur = rows[1];
+        for (int j = 0; j < m + 1; j++) {
+            prev[j] = j * HIERARCHY_EDIT_COST;
+        }
+
+        for (int i = 1; i < n + 1; i++) {
+            cur[0] = i * HIERARCHY_EDIT_COST;
+            int rowMin = cur[0];
+            int tag = tagIds1[i - 1];
+            for (int j = 1; j < m + 1; j++) {
+                int left = prev[j] + HIERARCHY_EDIT_COST;
+                int down = cur[j - 1] + HIERARCHY_EDIT_COST;
+                int left_down = prev[j - 1] + substituteCost(tag, tagIds2[j - 1], parentIds);
+                int d = Math.min(left, Math.min(down, left_down));
+                cur[j] = d;
+                if (d < rowMin) {
+                    rowMin = d;
+                }
+            }
+            if (rowMin > bound) {
+                return overBound;
+            }
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return Math.min(prev[m], overBound);
+    }
+
+    /**
+     * 替换代价：相同为 0，父子或兄弟为 1，其余为 2
+     */
+    private static int substituteCost(int tag1, int tag2, int[] parentIds) {
+        if (tag1 == tag2) {
+            return 0;
+        }
+        return isRelatedTag(tag1, tag2, parentIds) ? HIERARCHY_RELATED_COST : HIERARCHY_EDIT_COST;
+    }
+
+    /**
+     * 两个不同的标签是否为父子或兄弟（父标签相同）关系
+     *
+     * @param tag1
+     * @param tag2
+     * @param parentIds 标签编号 => 父标签编号（没有父标签为 -1）
+     * @return
+     */
+    public static boolean isRelatedTag(int tag1, int tag2, int[] parentIds) {
+        int parent1 = tag1 < parentIds.length ? parentIds[tag1] : -1;
+        int parent2 = tag2 < parentIds.length ? parentIds[tag2] : -1;
+        return parent1 == tag2 || parent2 == tag1 || (parent1 >= 0 && parent1 == parent2);
+    }
+
+    /**
+     * 线程复用的两行 dp 缓冲区
+     */
+    private static final ThreadLocal<int[][]> ROW_BUFFER = ThreadLocal.withInitial(() -> new int[2][16]);
+
+    private static int[][] rowBuffer(int length) {
+        int[][] rows = ROW_BUFFER.get();
+        if (rows[0].length < length) {
+            int newLength = Math.max(length, rows[0].length << 1);
+            rows[0] = new int[newLength];
+            rows[1] = new int[newLength];
+        }
+        return rows;
+    }
+
     // [编程学习交流圈](https://www.code-nav.cn/) 连接万名编程爱好者，一起优秀！20000+ 小伙伴交流分享、40+ 大厂嘉宾一对一答疑、100+ 各方向编程交流群、4000+ 编程问答参考
 
     /**
@@ -0,0 +1,357 @@
+package com.treay.yujian.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存好友图（无向图）
+ * 整体加载的数据按 CSR 存储：userIds 为升序的用户 id，用户 userIds[i] 的好友是 friendIds[offsets[i], offsets[i + 1]) 升序区间；
+ * 加载后修改过的用户，好友列表以单独的升序数组覆盖在 CSR 之上，覆盖的用户数超过阈值时合并成新的 CSR。
+ * 写入串行执行，每次写入替换整个好友数组，读取不加锁，读到的数组不会再被修改
+ *
+ * @author Treay
+ */
+public class FriendGraph {
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * 覆盖的用户数超过该值时合并
+     */
+    private final int compactThreshold;
+
+    private volatile Snapshot snapshot = new Snapshot(EMPTY, new int[]{0}, EMPTY, new HashMap<>());
+
+    /**
+     * 加载期间的修改，加载完成后在新数据上重放；为 null 表示没有在加载
+     */
+    private List<long[]> pendingEdges;
+
+    public FriendGraph(int compactThreshold) {
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * 开始加载，之后的修改会在 finishLoad 时重放
+     */
+    public synchronized void beginLoad() {
+        pendingEdges = new ArrayList<>();
+    }
+
+    /**
+     * 加载失败时取消加载，不再记录修改，当前的图保持不变
+     */
+    public synchronized void cancelLoad() {
+        pendingEdges = null;
+    }
+
+    /**
+     * 用整体加载的数据替换当前的图
+     *
+     * @param userIds   每条边的用户 id，按 (userId, friendId) 升序排列
+     * @param friendIds 每条边的好友 id
+     * @param edgeCount 边数，两个方向各算一条
+     */
+    public synchronized void finishLoad(long[] userIds, long[] friendIds, int edgeCount) {
+        int userCount = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (i == 0 || userIds[i] != userIds[i - 1]) {
+                userCount++;
+            }
+        }
+        long[] csrUserIds = new long[userCount];
+        int[] offsets = new int[userCount + 1];
+        long[] csrFriendIds = new long[edgeCount];
+        int user = -1;
+        int edge = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (i == 0 || userIds[i] != userIds[i - 1]) {
+                user++;
+                csrUserIds[user] = userIds[i];
+                offsets[user] = edge;
+            } else if (friendIds[i] == friendIds[i - 1]) {
+                // 重复的边只保留一条
+                continue;
+            }
+            csrFriendIds[edge++] = friendIds[i];
+        }
+        offsets[userCount] = edge;
+        snapshot = new Snapshot(csrUserIds, offsets, edge == edgeCount ? csrFriendIds : Arrays.copyOf(csrFriendIds, edge),
+                new HashMap<>());
+        List<long[]> replayEdges = pendingEdges;
+        pendingEdges = null;
+        if (replayEdges != null) {
+            for (long[] replayEdge : replayEdges) {
+                if (replayEdge[2] == 1) {
+                    addFriend(replayEdge[0], replayEdge[1]);
+                } else {
+                    removeFriend(replayEdge[0], replayEdge[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 互相添加好友
+     *
+     * @param userId
+     * @param friendId
+     */
+    public synchronized void addFriend(long userId, long friendId) {
+        if (userId == friendId) {
+            return;
+        }
+        if (pendingEdges != null) {
+            pendingEdges.add(new long[]{userId, friendId, 1});
+        }
+        Map<Long, long[]> overrides = new HashMap<>(snapshot.overrides);
+        overrides.put(userId, insert(snapshot.copyFriends(userId), friendId));
+        overrides.put(friendId, insert(snapshot.copyFriends(friendId), userId));
+        publish(overrides);
+    }
+
+    /**
+     * 互相删除好友
+     *
+     * @param userId
+     * @param friendId
+     */
+    public synchronized void removeFriend(long userId, long friendId) {
+        if (pendingEdges != null) {
+            pendingEdges.add(new long[]{userId, friendId, 0});
+        }
+        Map<Long, long[]> overrides = new HashMap<>(snapshot.overrides);
+        overrides.put(userId, delete(snapshot.copyFriends(userId), friendId));
+        overrides.put(friendId, delete(snapshot.copyFriends(friendId), userId));
+        publish(overrides);
+    }
+
+    /**
+     * 用户的好友
+     *
+     * @param userId
+     * @return 升序的好友 id
+     */
+    public long[] getFriends(long userId) {
+        return snapshot.copyFriends(userId);
+    }
+
+    /**
+     * 两个用户的共同好友（两个升序数组求交集）
+     *
+     * @param userId
+     * @param otherUserId
+     * @return 升序的共同好友 id
+     */
+    public long[] getMutualFriends(long userId, long otherUserId) {
+        Snapshot current = snapshot;
+        int[] rangeA = new int[2];
+        int[] rangeB = new int[2];
+        long[] a = current.friends(userId, rangeA);
+        long[] b = current.friends(otherUserId, rangeB);
+        long[] result = new long[Math.min(rangeA[1] - rangeA[0], rangeB[1] - rangeB[0])];
+        int i = rangeA[0];
+        int j = rangeB[0];
+        int size = 0;
+        while (i < rangeA[1] && j < rangeB[1]) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 可能认识的人：好友的好友中还不是好友的用户，按共同好友数降序
+     *
+     * @param userId
+     * @param limit
+     * @param idsOut       推荐的用户 id，长度至少为 limit
+     * @param mutualCounts 对应的共同好友数，长度至少为 limit
+     * @return 推荐的用户数
+     */
+    public int suggest(long userId, int limit, long[] idsOut, int[] mutualCounts) {
+        Snapshot current = snapshot;
+        long[] friends = current.copyFriends(userId);
+        int[] range = new int[2];
+        int total = 0;
+        for (long friend : friends) {
+            current.friends(friend, range);
+            total += range[1] - range[0];
+        }
+        // 所有好友的好友放在一起排序，同一个用户连续出现的次数就是共同好友数
+        long[] candidates = new long[total];
+        int size = 0;
+        for (long friend : friends) {
+            long[] friendsOfFriend = current.friends(friend, range);
+            System.arraycopy(friendsOfFriend, range[0], candidates, size, range[1] - range[0]);
+            size += range[1] - range[0];
+        }
+        Arrays.sort(candidates, 0, size);
+        TopKHeap topKHeap = new TopKHeap(limit);
+        int i = 0;
+        while (i < size) {
+            long candidate = candidates[i];
+            int j = i;
+            while (j < size && candidates[j] == candidate) {
+                j++;
+            }
+            if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                // TopKHeap 保留分数最小的，取负数即保留共同好友最多的
+                topKHeap.offer(candidate, i - j);
+            }
+            i = j;
+        }
+        int count = topKHeap.size();
+        topKHeap.drainSorted(idsOut, mutualCounts);
+        for (int k = 0; k < count; k++) {
+            mutualCounts[k] = -mutualCounts[k];
+        }
+        return count;
+    }
+
+    /**
+     * 有好友的用户数
+     */
+    public int userCount() {
+        Snapshot current = snapshot;
+        int count = current.userIds.length;
+        for (Map.Entry<Long, long[]> entry : current.overrides.entrySet()) {
+            boolean inCsr = Arrays.binarySearch(current.userIds, entry.getKey()) >= 0;
+            if (inCsr && entry.getValue().length == 0) {
+                count--;
+            } else if (!inCsr && entry.getValue().length > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void publish(Map<Long, long[]> overrides) {
+        Snapshot current = snapshot;
+        if (overrides.size() <= compactThreshold) {
+            snapshot = new Snapshot(current.userIds, current.offsets, current.friendIds, overrides);
+            return;
+        }
+        // 合并 CSR 和覆盖的好友列表
+        Snapshot merging = new Snapshot(current.userIds, current.offsets, current.friendIds, overrides);
+        long[] allUserIds = new long[current.userIds.length + overrides.size()];
+        System.arraycopy(current.userIds, 0, allUserIds, 0, current.userIds.length);
+        int userCount = current.userIds.length;
+        int edgeCount = current.friendIds.length;
+        for (Map.Entry<Long, long[]> entry : overrides.entrySet()) {
+            int index = Arrays.binarySearch(current.userIds, entry.getKey());
+            if (index < 0) {
+                allUserIds[userCount++] = entry.getKey();
+            } else {
+                edgeCount -= current.offsets[index + 1] - current.offsets[index];
+            }
+            edgeCount += entry.getValue().length;
+        }
+        Arrays.sort(allUserIds, 0, userCount);
+        long[] userIds = new long[userCount];
+        int[] offsets = new int[userCount + 1];
+        long[] friendIds = new long[edgeCount];
+        int users = 0;
+        int edge = 0;
+        int[] range = new int[2];
+        for (int i = 0; i < userCount; i++) {
+            long[] friends = merging.friends(allUserIds[i], range);
+            int length = range[1] - range[0];
+            if (length == 0) {
+                continue;
+            }
+            userIds[users] = allUserIds[i];
+            offsets[users++] = edge;
+            System.arraycopy(friends, range[0], friendIds, edge, length);
+            edge += length;
+        }
+        offsets[users] = edge;
+        snapshot = new Snapshot(Arrays.copyOf(userIds, users), Arrays.copyOf(offsets, users + 1), friendIds,
+                new HashMap<>());
+    }
+
+    private static long[] insert(long[] friends, long friendId) {
+        int index = Arrays.binarySearch(friends, friendId);
+        if (index >= 0) {
+            return friends;
+        }
+        int insertAt = -index - 1;
+        long[] result = new long[friends.length + 1];
+        System.arraycopy(friends, 0, result, 0, insertAt);
+        result[insertAt] = friendId;
+        System.arraycopy(friends, insertAt, result, insertAt + 1, friends.length - insertAt);
+        return result;
+    }
+
+    private static long[] delete(long[] friends, long friendId) {
+        int index = Arrays.binarySearch(friends, friendId);
+        if (index < 0) {
+            return friends;
+        }
+        long[] result = new long[friends.length - 1];
+        System.arraycopy(friends, 0, result, 0, index);
+        System.arraycopy(friends, index + 1, result, index, friends.length - index - 1);
+        return result;
+    }
+
+    /**
+     * 某一时刻的图，创建后不再修改
+     */
+    private static class Snapshot {
+
+        private final long[] userIds;
+
+        private final int[] offsets;
+
+        private final long[] friendIds;
+
+        /**
+         * 加载或合并后修改过的用户 => 升序的好友 id
+         */
+        private final Map<Long, long[]> overrides;
+
+        Snapshot(long[] userIds, int[] offsets, long[] friendIds, Map<Long, long[]> overrides) {
+            this.userIds = userIds;
+            this.offsets = offsets;
+            this.friendIds = friendIds;
+            this.overrides = overrides;
+        }
+
+        /**
+         * 用户的好友所在的数组，好友为 [range[0], range[1]) 区间，不复制
+         */
+        long[] friends(long userId, int[] range) {
+            long[] override = overrides.get(userId);
+            if (override != null) {
+                range[0] = 0;
+                range[1] = override.length;
+                return override;
+            }
+            int index = Arrays.binarySearch(userIds, userId);
+            if (index < 0) {
+                range[0] = 0;
+                range[1] = 0;
+                return EMPTY;
+            }
+            range[0] = offsets[index];
+            range[1] = offsets[index + 1];
+            return friendIds;
+        }
+
+        long[] copyFriends(long userId) {
+            int[] range = new int[2];
+            long[] friends = friends(userId, range);
+            return Arrays.copyOfRange(friends, range[0], range[1]);
+        }
+    }
+}
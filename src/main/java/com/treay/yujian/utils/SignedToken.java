@@ -0,0 +1,159 @@
+package com.treay.yujian.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * HMAC-SHA256 签名的访问令牌
+ * 格式为 “用户id.角色.签发时间.过期时间.签名”，数字均为十六进制，签名覆盖前四段；
+ * 校验只做本地计算，不访问 Redis 和数据库。可以被多个线程同时使用
+ *
+ * @author Treay
+ */
+public class SignedToken {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final SecretKeySpec secretKey;
+
+    /**
+     * Mac 不是线程安全的，每个线程一个
+     */
+    private final ThreadLocal<Mac> macThreadLocal;
+
+    /**
+     * @param secret 签名密钥，所有实例必须相同
+     */
+    public SignedToken(byte[] secret) {
+        this.secretKey = new SecretKeySpec(secret, ALGORITHM);
+        this.macThreadLocal = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(secretKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * 签发令牌
+     *
+     * @param userId
+     * @param userRole
+     * @param issuedAt 签发时间（毫秒时间戳）
+     * @param expireAt 过期时间（毫秒时间戳）
+     * @return
+     */
+    public String sign(long userId, int userRole, long issuedAt, long expireAt) {
+        String payload = Long.toHexString(userId) + "." + Integer.toHexString(userRole) + "."
+                + Long.toHexString(issuedAt) + "." + Long.toHexString(expireAt);
+        return payload + "." + toHex(mac(payload));
+    }
+
+    /**
+     * 校验令牌
+     *
+     * @param token
+     * @param now   当前时间（毫秒时间戳）
+     * @return 签名正确且未过期时返回令牌内容，否则返回 null
+     */
+    public Claims verify(String token, long now) {
+        if (token == null) {
+            return null;
+        }
+        int signatureIndex = token.lastIndexOf('.');
+        if (signatureIndex < 0) {
+            return null;
+        }
+        String payload = token.substring(0, signatureIndex);
+        byte[] signature = fromHex(token.substring(signatureIndex + 1));
+        // 按固定时间比较，避免根据耗时猜出签名
+        if (signature == null || !MessageDigest.isEqual(mac(payload), signature)) {
+            return null;
+        }
+        String[] parts = payload.split("\\.");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            Claims claims = new Claims(Long.parseUnsignedLong(parts[0], 16), Integer.parseUnsignedInt(parts[1], 16),
+                    Long.parseUnsignedLong(parts[2], 16), Long.parseUnsignedLong(parts[3], 16));
+            return claims.getExpireAt() > now ? claims : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private byte[] mac(String payload) {
+        return macThreadLocal.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static byte[] fromHex(String hex) {
+        if ((hex.length() & 1) != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * 令牌内容
+     */
+    public static class Claims {
+
+        private final long userId;
+
+        private final int userRole;
+
+        private final long issuedAt;
+
+        private final long expireAt;
+
+        public Claims(long userId, int userRole, long issuedAt, long expireAt) {
+            this.userId = userId;
+            this.userRole = userRole;
+            this.issuedAt = issuedAt;
+            this.expireAt = expireAt;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public int getUserRole() {
+            return userRole;
+        }
+
+        public long getIssuedAt() {
+            return issuedAt;
+        }
+
+        public long getExpireAt() {
+            return expireAt;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.treay.yujian.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 标签前缀索引（用于标签联想）
+ * 规范化后的标签名排序存放在数组中，查询时二分查找出前缀对应的区间，再取区间内热度最高的若干个标签；
+ * 同义标签各占一项、指向同一个规范标签，结果按规范标签去重。构建后只读，可以被多个线程同时查询
+ *
+ * @author Treay
+ */
+public class TagPrefixIndex {
+
+    /**
+     * 按字典序排序的规范化标签名
+     */
+    private final String[] keys;
+
+    /**
+     * 与 keys 一一对应：规范标签的展示名 / 规范标签的热度
+     */
+    private final String[] names;
+
+    private final long[] counts;
+
+    /**
+     * @param keys   规范化后的标签名（不能重复）
+     * @param names  对应的规范标签展示名
+     * @param counts 对应的规范标签热度
+     */
+    public TagPrefixIndex(String[] keys, String[] names, long[] counts) {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+        this.keys = new String[keys.length];
+        this.names = new String[keys.length];
+        this.counts = new long[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            this.keys[i] = keys[order[i]];
+            this.names[i] = names[order[i]];
+            this.counts[i] = counts[order[i]];
+        }
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * 前缀联想
+     *
+     * @param prefix 规范化后的前缀
+     * @param limit  返回数量
+     * @return 按热度降序的规范标签展示名，热度相同时按规范化后的标签名排序
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int from = lowerBound(prefix);
+        // 以 prefix 开头的标签都小于 prefix + Character.MAX_VALUE
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        // 当前保留的结果，按热度降序（limit 很小，插入排序即可）
+        int[] top = new int[Math.min(limit, to - from)];
+        int topSize = 0;
+        for (int i = from; i < to; i++) {
+            long count = counts[i];
+            if (topSize == top.length && count <= counts[top[topSize - 1]]) {
+                continue;
+            }
+            if (containsName(top, topSize, names[i])) {
+                continue;
+            }
+            int j = topSize == top.length ? topSize - 1 : topSize++;
+            while (j > 0 && counts[top[j - 1]] < count) {
+                top[j] = top[j - 1];
+                j--;
+            }
+            top[j] = i;
+        }
+        List<String> result = new ArrayList<>(topSize);
+        for (int i = 0; i < topSize; i++) {
+            result.add(names[top[i]]);
+        }
+        return result;
+    }
+
+    private boolean containsName(int[] top, int topSize, String name) {
+        for (int i = 0; i < topSize; i++) {
+            if (names[top[i]].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 第一个不小于 key 的位置
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
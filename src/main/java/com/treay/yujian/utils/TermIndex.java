@@ -0,0 +1,121 @@
+package com.treay.yujian.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存倒排索引：词 => 包含该词的文档 id 及该词在文档中的权重
+ * 写入方法加锁串行执行；查询不加锁，可能读到正在更新的文档的部分词，下一次查询即恢复一致
+ *
+ * @author Treay
+ */
+public class TermIndex {
+
+    /**
+     * 词 => (文档 id => 权重)
+     */
+    private final Map<String, Map<Long, Integer>> postingMap = new ConcurrentHashMap<>();
+
+    /**
+     * 文档 id => 文档的词，更新和删除文档时用于从倒排表中移除旧词
+     */
+    private final Map<Long, Collection<String>> documentMap = new ConcurrentHashMap<>();
+
+    /**
+     * 文档数
+     *
+     * @return
+     */
+    public int size() {
+        return documentMap.size();
+    }
+
+    /**
+     * 新增或替换文档
+     *
+     * @param id          文档 id
+     * @param termWeights 词 => 权重（权重大于 0）
+     */
+    public synchronized void put(long id, Map<String, Integer> termWeights) {
+        remove(id);
+        if (termWeights.isEmpty()) {
+            return;
+        }
+        termWeights.forEach((term, weight) ->
+                postingMap.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(id, weight));
+        documentMap.put(id, new ArrayList<>(termWeights.keySet()));
+    }
+
+    public synchronized void remove(long id) {
+        Collection<String> oldTerms = documentMap.remove(id);
+        if (oldTerms == null) {
+            return;
+        }
+        for (String term : oldTerms) {
+            Map<Long, Integer> posting = postingMap.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postingMap.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * 搜索包含全部词的文档
+     * 从最短的倒排表开始逐个求交集，不扫描全部文档；得分为各词权重乘以逆文档频率 ln(1 + N / df) 之和
+     *
+     * @param terms 查询词
+     * @return 按得分降序的文档 id，得分相同时按 id 升序
+     */
+    public List<Long> search(Collection<String> terms) {
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Map<Long, Integer>> postings = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Map<Long, Integer> posting = postingMap.get(term);
+            if (posting == null || posting.isEmpty()) {
+                return new ArrayList<>();
+            }
+            postings.add(posting);
+        }
+        postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        int documentCount = Math.max(size(), 1);
+        Map<Long, Double> scoreMap = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : postings.get(0).entrySet()) {
+            scoreMap.put(entry.getKey(), entry.getValue() * idf(documentCount, postings.get(0).size()));
+        }
+        for (int i = 1; i < postings.size() && !scoreMap.isEmpty(); i++) {
+            Map<Long, Integer> posting = postings.get(i);
+            double idf = idf(documentCount, posting.size());
+            scoreMap.entrySet().removeIf(entry -> {
+                Integer weight = posting.get(entry.getKey());
+                if (weight == null) {
+                    return true;
+                }
+                entry.setValue(entry.getValue() + weight * idf);
+                return false;
+            });
+        }
+        List<Map.Entry<Long, Double>> entryList = new ArrayList<>(scoreMap.entrySet());
+        entryList.sort((a, b) -> {
+            int compare = Double.compare(b.getValue(), a.getValue());
+            return compare != 0 ? compare : Long.compare(a.getKey(), b.getKey());
+        });
+        List<Long> idList = new ArrayList<>(entryList.size());
+        for (Map.Entry<Long, Double> entry : entryList) {
+            idList.add(entry.getKey());
+        }
+        return idList;
+    }
+
+    private static double idf(int documentCount, int documentFrequency) {
+        return Math.log(1 + (double) documentCount / documentFrequency);
+    }
+}
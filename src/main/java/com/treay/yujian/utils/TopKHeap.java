@@ -0,0 +1,158 @@
+package com.treay.yujian.utils;
+
+/**
+ * 定长 TopK 堆（按分数保留最小的 k 个）
+ * 堆顶为当前保留元素中分数最大的一个，用原始类型数组存储，避免装箱
+ *
+ * @author Treay
+ */
+public class TopKHeap {
+
+    private final int capacity;
+
+    private final long[] ids;
+
+    private final int[] scores;
+
+    private int size;
+
+    public TopKHeap(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.ids = new long[this.capacity];
+        this.scores = new int[this.capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * 当前保留元素中最大的分数，堆为空时返回 Integer.MAX_VALUE
+     *
+     * @return
+     */
+    public int worstScore() {
+        return size == 0 ? Integer.MAX_VALUE : scores[0];
+    }
+
+    /**
+     * 入堆：未满直接加入，已满时只有分数严格小于堆顶才替换堆顶
+     *
+     * @param id
+     * @param score
+     * @return 是否入堆
+     */
+    public boolean offer(long id, int score) {
+        if (capacity == 0) {
+            return false;
+        }
+        if (size < capacity) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (score >= scores[0]) {
+            return false;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * 合并另一个堆中的全部元素（用于并行计算后合并各分片的结果）
+     *
+     * @param other
+     */
+    public void offerAll(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * 按分数升序取出所有 id（分数相同的元素之间顺序不保证），取出后堆被清空
+     *
+     * @return
+     */
+    public long[] drainSortedIds() {
+        long[] result = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = ids[0];
+            removeTop();
+        }
+        return result;
+    }
+
+    /**
+     * 按分数升序取出所有元素到 idsOut / scoresOut（长度至少为 size()），取出后堆被清空
+     *
+     * @param idsOut
+     * @param scoresOut
+     */
+    public void drainSorted(long[] idsOut, int[] scoresOut) {
+        for (int i = size - 1; i >= 0; i--) {
+            idsOut[i] = ids[0];
+            scoresOut[i] = scores[0];
+            removeTop();
+        }
+    }
+
+    private void removeTop() {
+        size--;
+        if (size > 0) {
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] >= scores[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = (i << 1) + 1;
+            if (left >= size) {
+                break;
+            }
+            int largest = left;
+            int right = left + 1;
+            if (right < size && scores[right] > scores[left]) {
+                largest = right;
+            }
+            if (scores[i] >= scores[largest]) {
+                break;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,30 @@
+package com.treay.yujian.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ *
+ * @author Treay
+ */
+public class TransactionUtils {
+
+    /**
+     * 当前有事务时在事务提交后执行（回滚则不执行），没有事务时立即执行
+     *
+     * @param task
+     */
+    public static void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+}
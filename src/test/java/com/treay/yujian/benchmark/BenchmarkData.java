@@ -0,0 +1,102 @@
+package com.treay.yujian.benchmark;
+
+import com.google.gson.Gson;
+import com.treay.yujian.model.domain.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试数据：固定随机种子生成，保证每次运行的输入相同
+ *
+ * @author Treay
+ */
+public class BenchmarkData {
+
+    public static final long SEED = 20240101L;
+
+    /**
+     * 标签词表（与线上标签的长度和重复度接近）
+     */
+    public static final String[] VOCABULARY = {
+            "Java", "Python", "C++", "Go", "JavaScript", "前端", "后端", "算法", "机器学习", "数据库",
+            "大一", "大二", "大三", "大四", "研一", "研二", "工作", "男", "女", "萌新",
+            "篮球", "足球", "羽毛球", "健身", "跑步", "摄影", "音乐", "电影", "游戏", "旅行",
+            "考研", "考公", "找实习", "找工作", "创业", "竞赛", "开源", "Spring", "Vue", "React"
+    };
+
+    private static final Gson GSON = new Gson();
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 随机生成 tagCount 个标签（可能重复，与用户手动填写的数据一致）
+     */
+    public static List<String> randomTags(Random random, int tagCount) {
+        List<String> tagList = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            tagList.add(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return tagList;
+    }
+
+    /**
+     * 随机生成 count 个用户的标签 JSON，每个用户 1 ~ maxTagCount 个标签
+     */
+    public static String[] randomTagsJson(Random random, int count, int maxTagCount) {
+        String[] tagsJson = new String[count];
+        for (int i = 0; i < count; i++) {
+            tagsJson[i] = GSON.toJson(randomTags(random, 1 + random.nextInt(maxTagCount)));
+        }
+        return tagsJson;
+    }
+
+    /**
+     * 随机生成 count 个字段填满的用户
+     */
+    public static List<User> randomUsers(Random random, int count) {
+        List<User> userList = new ArrayList<>(count);
+        Date now = new Date();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId(i + 1L);
+            user.setUsername("user" + i);
+            user.setFriendId("[]");
+            user.setUserAccount("account" + i);
+            user.setAvatarUrl("https://example.com/avatar/" + i + ".png");
+            user.setGender(random.nextInt(2));
+            user.setUserPassword("b0dd3697a192885d7c055db46155b26a");
+            user.setPhone("1380000" + String.format("%04d", i % 10000));
+            user.setEmail("user" + i + "@example.com");
+            user.setProfile("profile of user " + i);
+            user.setTags(GSON.toJson(randomTags(random, 1 + random.nextInt(8))));
+            user.setUserStatus(0);
+            user.setCreateTime(now);
+            user.setUpdateTime(now);
+            user.setIsDelete(0);
+            user.setUserRole(0);
+            user.setPlanetCode(String.valueOf(i + 1));
+            user.setAddCount(random.nextInt(100));
+            userList.add(user);
+        }
+        return userList;
+    }
+
+    /**
+     * 标签列表 => 按标签名排序后的标签编号数组（与 MatchIndex 中的转换方式一致）
+     */
+    public static int[] toSortedTagIds(List<String> tagList, Map<String, Integer> tagIdMap) {
+        List<String> sortedTagList = new ArrayList<>(tagList);
+        Collections.sort(sortedTagList);
+        int[] tagIds = new int[sortedTagList.size()];
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = tagIdMap.computeIfAbsent(sortedTagList.get(i), name -> tagIdMap.size());
+        }
+        return tagIds;
+    }
+}
@@ -0,0 +1,25 @@
+package com.treay.yujian.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口
+ * 先执行 mvn test-compile，再在 IDE 中运行本类；参数为要运行的基准测试类名正则，默认运行全部
+ * 例如：MinDistanceBenchmark、TopNBenchmark.topKHeap
+ *
+ * @author Treay
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*Benchmark";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.treay.yujian.benchmark;
+
+import com.treay.yujian.utils.AlgorithmUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标签编辑距离基准测试：List<String> 版本 / int[] 版本 / 带上界的 int[] 版本
+ * 每次调用计算 PAIR_COUNT 对标签
+ *
+ * @author Treay
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MinDistanceBenchmark {
+
+    private static final int PAIR_COUNT = 1000;
+
+    /**
+     * 每个用户的标签数
+     */
+    @Param({"3", "8", "20"})
+    private int tagCount;
+
+    private List<String>[] tagLists1;
+
+    private List<String>[] tagLists2;
+
+    private int[][] tagIds1;
+
+    private int[][] tagIds2;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        Map<String, Integer> tagIdMap = new HashMap<>();
+        tagLists1 = new List[PAIR_COUNT];
+        tagLists2 = new List[PAIR_COUNT];
+        tagIds1 = new int[PAIR_COUNT][];
+        tagIds2 = new int[PAIR_COUNT][];
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            tagLists1[i] = BenchmarkData.randomTags(random, tagCount);
+            tagLists2[i] = BenchmarkData.randomTags(random, tagCount);
+            tagIds1[i] = BenchmarkData.toSortedTagIds(tagLists1[i], tagIdMap);
+            tagIds2[i] = BenchmarkData.toSortedTagIds(tagLists2[i], tagIdMap);
+        }
+    }
+
+    @Benchmark
+    public void tagList(Blackhole blackhole) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            blackhole.consume(AlgorithmUtils.minDistance(tagLists1[i], tagLists2[i]));
+        }
+    }
+
+    @Benchmark
+    public void tagIds(Blackhole blackhole) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            blackhole.consume(AlgorithmUtils.minDistance(tagIds1[i], tagIds2[i]));
+        }
+    }
+
+    /**
+     * 上界取标签数的一半，模拟 topN 堆已满后的剪枝
+     */
+    @Benchmark
+    public void tagIdsBounded(Blackhole blackhole) {
+        int bound = tagCount / 2;
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            blackhole.consume(AlgorithmUtils.minDistance(tagIds1[i], tagIds2[i], bound));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.treay.yujian.benchmark;
+
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.service.impl.UserServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户脱敏（getSafetyUser）基准测试，每次调用复制 USER_COUNT 个用户
+ *
+ * @author Treay
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SafetyUserBenchmark {
+
+    private static final int USER_COUNT = 1000;
+
+    private List<User> userList;
+
+    private UserServiceImpl userService;
+
+    @Setup
+    public void setup() {
+        userList = BenchmarkData.randomUsers(new Random(BenchmarkData.SEED), USER_COUNT);
+        // getSafetyUser 不依赖注入的 Bean，直接创建即可
+        userService = new UserServiceImpl();
+    }
+
+    @Benchmark
+    public void getSafetyUser(Blackhole blackhole) {
+        for (User user : userList) {
+            blackhole.consume(userService.getSafetyUser(user));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.treay.yujian.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标签 JSON 解析基准测试
+ * 对应 matchUsers / getTags（List）和 searchUsersByTags（Set）中的 Gson 解析，每次调用解析 USER_COUNT 个用户的标签
+ *
+ * @author Treay
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TagParseBenchmark {
+
+    private static final int USER_COUNT = 1000;
+
+    private static final Type TAG_LIST_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+
+    private String[] tagsJson;
+
+    private Gson gson;
+
+    @Setup
+    public void setup() {
+        tagsJson = BenchmarkData.randomTagsJson(new Random(BenchmarkData.SEED), USER_COUNT, 8);
+        gson = new Gson();
+    }
+
+    /**
+     * 与现有代码相同：每次解析都新建 Gson 和 TypeToken
+     */
+    @Benchmark
+    public void newGsonPerCall(Blackhole blackhole) {
+        for (String tags : tagsJson) {
+            blackhole.consume(new Gson().fromJson(tags, new TypeToken<List<String>>() {
+            }.getType()));
+        }
+    }
+
+    @Benchmark
+    public void listWithNewTypeToken(Blackhole blackhole) {
+        for (String tags : tagsJson) {
+            blackhole.consume(gson.fromJson(tags, new TypeToken<List<String>>() {
+            }.getType()));
+        }
+    }
+
+    @Benchmark
+    public void listWithCachedType(Blackhole blackhole) {
+        for (String tags : tagsJson) {
+            blackhole.consume(gson.fromJson(tags, TAG_LIST_TYPE));
+        }
+    }
+
+    @Benchmark
+    public void set(Blackhole blackhole) {
+        for (String tags : tagsJson) {
+            blackhole.consume(gson.fromJson(tags, new TypeToken<Set<String>>() {
+            }.getType()));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.treay.yujian.benchmark;
+
+import com.treay.yujian.utils.TagPrefixIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 标签联想基准测试：遍历全部标签过滤前缀再排序（客户端的做法）/ 排序数组二分查找前缀
+ * 目标：单次联想在 1 毫秒以内
+ *
+ * @author Treay
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TagSuggestBenchmark {
+
+    /**
+     * 标签数
+     */
+    @Param({"1000", "10000"})
+    private int tagCount;
+
+    /**
+     * 前缀长度，越短匹配的标签越多
+     */
+    @Param({"1", "3"})
+    private int prefixLength;
+
+    private static final int LIMIT = 10;
+
+    private String[] keys;
+
+    private long[] counts;
+
+    private TagPrefixIndex prefixIndex;
+
+    private String[] prefixes;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        Set<String> tagSet = new LinkedHashSet<>();
+        for (String tag : BenchmarkData.VOCABULARY) {
+            tagSet.add(tag.toLowerCase(Locale.ROOT));
+        }
+        // 其余标签为随机小写字母串，长度与常见英文标签接近
+        while (tagSet.size() < tagCount) {
+            int length = 3 + random.nextInt(8);
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            tagSet.add(sb.toString());
+        }
+        keys = tagSet.toArray(new String[0]);
+        counts = new long[keys.length];
+        for (int i = 0; i < counts.length; i++) {
+            // 热度近似长尾分布
+            counts[i] = (long) (100000 / (1 + random.nextInt(1000)));
+        }
+        prefixIndex = new TagPrefixIndex(keys, keys, counts);
+        prefixes = new String[256];
+        for (int i = 0; i < prefixes.length; i++) {
+            String key = keys[random.nextInt(keys.length)];
+            prefixes[i] = key.substring(0, Math.min(prefixLength, key.length()));
+        }
+    }
+
+    @Benchmark
+    public List<String> scanAll() {
+        String prefix = nextPrefix();
+        List<Integer> matched = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].startsWith(prefix)) {
+                matched.add(i);
+            }
+        }
+        return matched.stream()
+                .sorted((a, b) -> Long.compare(counts[b], counts[a]))
+                .limit(LIMIT)
+                .map(i -> keys[i])
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> prefixIndex() {
+        return prefixIndex.suggest(nextPrefix(), LIMIT);
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (prefixes.length - 1);
+        return prefixes[next];
+    }
+}
@@ -0,0 +1,98 @@
+package com.treay.yujian.benchmark;
+
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.service.impl.UserServiceImpl;
+import com.treay.yujian.utils.SignedToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次请求的登录校验开销：签名令牌（HMAC 校验 + 吊销记录查询）对比 Redis 令牌（反序列化 HGET 返回的用户）
+ * Redis 令牌的网络往返不在本地测量范围内，实际每次请求还要加上一次 RTT
+ *
+ * @author Treay
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenAuthBenchmark {
+
+    private static final int USER_COUNT = 1000;
+
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    private SignedToken signedToken;
+
+    private String[] tokens;
+
+    /**
+     * 模拟吊销记录，每 100 个用户吊销 1 个
+     */
+    private Map<Long, Long> revokedMap;
+
+    private GenericJackson2JsonRedisSerializer serializer;
+
+    private byte[][] cachedUsers;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        List<User> userList = BenchmarkData.randomUsers(new Random(BenchmarkData.SEED), USER_COUNT);
+        UserServiceImpl userService = new UserServiceImpl();
+        signedToken = new SignedToken("benchmark-secret-0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+        serializer = new GenericJackson2JsonRedisSerializer();
+        revokedMap = new ConcurrentHashMap<>();
+        tokens = new String[USER_COUNT];
+        cachedUsers = new byte[USER_COUNT][];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < USER_COUNT; i++) {
+            User safetyUser = userService.getSafetyUser(userList.get(i));
+            tokens[i] = signedToken.sign(safetyUser.getId(), safetyUser.getUserRole(), now, now + TTL_MILLIS);
+            cachedUsers[i] = serializer.serialize(safetyUser);
+            if (i % 100 == 0) {
+                revokedMap.put(safetyUser.getId(), now - 1000);
+            }
+        }
+    }
+
+    @Benchmark
+    public Long signedVerify() {
+        String token = tokens[next()];
+        SignedToken.Claims claims = signedToken.verify(token, System.currentTimeMillis());
+        if (claims == null) {
+            return null;
+        }
+        Long revokedAt = revokedMap.get(claims.getUserId());
+        return revokedAt != null && claims.getIssuedAt() <= revokedAt ? null : claims.getUserId();
+    }
+
+    @Benchmark
+    public Object redisDecode() {
+        return serializer.deserialize(cachedUsers[next()]);
+    }
+
+    private int next() {
+        index = index + 1 == USER_COUNT ? 0 : index + 1;
+        return index;
+    }
+}
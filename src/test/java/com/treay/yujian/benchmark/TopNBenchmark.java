@@ -0,0 +1,107 @@
+package com.treay.yujian.benchmark;
+
+import com.treay.yujian.utils.TopKHeap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * topN 维护基准测试：全量排序（原 matchUsers 的做法）/ PriorityQueue / 原始类型 TopKHeap
+ *
+ * @author Treay
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TopNBenchmark {
+
+    /**
+     * 候选用户数
+     */
+    @Param({"10000", "100000"})
+    private int candidateCount;
+
+    /**
+     * 返回数量
+     */
+    @Param({"10", "100"})
+    private int topN;
+
+    private long[] ids;
+
+    private int[] scores;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        ids = new long[candidateCount];
+        scores = new int[candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            ids[i] = i + 1L;
+            // 编辑距离集中在较小的范围内，大量相同分数
+            scores[i] = random.nextInt(10);
+        }
+    }
+
+    @Benchmark
+    public List<Long> sortAll() {
+        List<Map.Entry<Long, Integer>> list = new ArrayList<>(candidateCount);
+        for (int i = 0; i < candidateCount; i++) {
+            list.add(new AbstractMap.SimpleEntry<>(ids[i], scores[i]));
+        }
+        return list.stream()
+                .sorted(Map.Entry.comparingByValue())
+                .limit(topN)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Long> priorityQueue() {
+        PriorityQueue<Map.Entry<Long, Integer>> queue = new PriorityQueue<>(topN + 1,
+                Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder()));
+        for (int i = 0; i < candidateCount; i++) {
+            if (queue.size() < topN) {
+                queue.offer(new AbstractMap.SimpleEntry<>(ids[i], scores[i]));
+            } else if (scores[i] < queue.peek().getValue()) {
+                queue.poll();
+                queue.offer(new AbstractMap.SimpleEntry<>(ids[i], scores[i]));
+            }
+        }
+        List<Long> result = new ArrayList<>(queue.size());
+        while (!queue.isEmpty()) {
+            result.add(queue.poll().getKey());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long[] topKHeap() {
+        TopKHeap heap = new TopKHeap(topN);
+        for (int i = 0; i < candidateCount; i++) {
+            heap.offer(ids[i], scores[i]);
+        }
+        return heap.drainSortedIds();
+    }
+}
@@ -0,0 +1,156 @@
+package com.treay.yujian.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.service.TagService;
+import com.treay.yujian.utils.AlgorithmUtils;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * 近似匹配召回率测试：LSH 近似匹配相对准确匹配的 recall@N 不低于阈值，且探测的 band 越多召回率越高
+ *
+ * @author Treay
+ */
+public class MatchIndexRecallTest {
+
+    private static final int USER_NUM = 10000;
+
+    private static final int QUERY_NUM = 100;
+
+    private static final int TOP_N = 10;
+
+    private static final Type TAG_LIST_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+
+    private final Gson gson = new Gson();
+
+    private List<User> userList;
+
+    private MatchIndex matchIndex;
+
+    @BeforeEach
+    void setUp() {
+        // 固定种子生成数据，热门标签出现的概率更高
+        Random random = new Random(42);
+        userList = new ArrayList<>(USER_NUM);
+        for (int i = 1; i <= USER_NUM; i++) {
+            List<String> tags = new ArrayList<>();
+            int tagNum = 1 + random.nextInt(8);
+            for (int j = 0; j < tagNum; j++) {
+                tags.add("tag" + (int) Math.min(199, Math.abs(random.nextGaussian()) * 40));
+            }
+            User user = new User();
+            user.setId(i);
+            user.setTags(gson.toJson(tags));
+            userList.add(user);
+        }
+        UserMapper userMapper = Mockito.mock(UserMapper.class);
+        Mockito.doAnswer(invocation -> {
+            ResultHandler<User> resultHandler = invocation.getArgument(0);
+            DefaultResultContext<User> resultContext = new DefaultResultContext<>();
+            for (User user : userList) {
+                resultContext.nextResultObject(user);
+                resultHandler.handleResult(resultContext);
+            }
+            return null;
+        }).when(userMapper).scanUserTags(any());
+
+        TagService tagService = Mockito.mock(TagService.class);
+        Mockito.when(tagService.getTagDictionary()).thenReturn(new TagDictionary());
+
+        matchIndex = new MatchIndex();
+        ReflectionTestUtils.setField(matchIndex, "userMapper", userMapper);
+        ReflectionTestUtils.setField(matchIndex, "tagService", tagService);
+        ReflectionTestUtils.setField(matchIndex, "parallelThreshold", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(matchIndex, "lshBands", 16);
+        ReflectionTestUtils.setField(matchIndex, "lshRows", 2);
+        matchIndex.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        matchIndex.destroy();
+    }
+
+    @Test
+    void testApproximateRecall() {
+        double[] recalls = {0.25, 0.5, 1.0};
+        double lastAverageRecall = 0;
+        for (double recall : recalls) {
+            Random random = new Random(1);
+            double totalRecall = 0;
+            for (int i = 0; i < QUERY_NUM; i++) {
+                User loginUser = userList.get(random.nextInt(USER_NUM));
+                long[] exactIds = matchIndex.match(loginUser.getId(), loginUser.getTags(), TOP_N);
+                long[] approximateIds = matchIndex.matchApproximate(loginUser.getId(), loginUser.getTags(), TOP_N, recall);
+                totalRecall += recallAtN(loginUser, exactIds, approximateIds);
+            }
+            double averageRecall = totalRecall / QUERY_NUM;
+            // 探测更多 band 得到的候选用户是之前的超集
+            Assertions.assertTrue(averageRecall >= lastAverageRecall, "recall@" + TOP_N + " decreased at recall=" + recall);
+            lastAverageRecall = averageRecall;
+        }
+        Assertions.assertTrue(lastAverageRecall >= 0.9, "recall@" + TOP_N + " = " + lastAverageRecall);
+    }
+
+    @Test
+    void testSearchByTags() {
+        List<List<String>> queries = Arrays.asList(
+                Collections.singletonList("tag0"),
+                Arrays.asList("tag1", "tag3"),
+                Arrays.asList("tag5", "tag10", "tag20"),
+                Collections.singletonList("tag1000"));
+        for (List<String> query : queries) {
+            List<Long> expected = new ArrayList<>();
+            for (User user : userList) {
+                List<String> tags = gson.fromJson(user.getTags(), TAG_LIST_TYPE);
+                if (tags.containsAll(query)) {
+                    expected.add(user.getId());
+                }
+            }
+            long[] actual = matchIndex.searchByTags(query);
+            Assertions.assertEquals(expected.size(), actual.length);
+            for (int i = 0; i < actual.length; i++) {
+                Assertions.assertEquals(expected.get(i).longValue(), actual[i]);
+            }
+        }
+    }
+
+    /**
+     * 近似结果中距离不超过准确结果第 N 名距离的比例（距离相同的用户可以互换，不按 id 比较）
+     */
+    private double recallAtN(User loginUser, long[] exactIds, long[] approximateIds) {
+        List<String> loginTags = gson.fromJson(loginUser.getTags(), TAG_LIST_TYPE);
+        int worstDistance = distance(loginTags, exactIds[exactIds.length - 1]);
+        int hit = 0;
+        for (long id : approximateIds) {
+            if (distance(loginTags, id) <= worstDistance) {
+                hit++;
+            }
+        }
+        return hit / (double) exactIds.length;
+    }
+
+    private int distance(List<String> loginTags, long userId) {
+        List<String> tags = gson.fromJson(userList.get((int) userId - 1).getTags(), TAG_LIST_TYPE);
+        return AlgorithmUtils.minDistance(loginTags, tags);
+    }
+}
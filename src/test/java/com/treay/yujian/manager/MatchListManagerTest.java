@@ -0,0 +1,90 @@
+package com.treay.yujian.manager;
+
+import com.treay.yujian.model.dto.MatchListDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 匹配列表增量维护测试
+ *
+ * @author Treay
+ */
+public class MatchListManagerTest {
+
+    @Test
+    void testMergeScore() {
+        // 未满时插入、删除都不需要重新计算
+        MatchListDTO matchListDTO = matchList(new long[]{1, 2}, new int[]{0, 2});
+        Assertions.assertEquals(1, MatchListManager.mergeScore(matchListDTO, 3, 1, 3));
+        Assertions.assertArrayEquals(new long[]{1, 3, 2}, matchListDTO.getUserIds());
+        Assertions.assertArrayEquals(new int[]{0, 1, 2}, matchListDTO.getScores());
+        Assertions.assertEquals(0, MatchListManager.mergeScore(matchListDTO, 3, 1, 4));
+
+        // 已满时更好的用户挤掉最后一个，更差的用户不变
+        Assertions.assertEquals(1, MatchListManager.mergeScore(matchListDTO, 4, 0, 3));
+        Assertions.assertArrayEquals(new long[]{1, 4, 3}, matchListDTO.getUserIds());
+        Assertions.assertEquals(0, MatchListManager.mergeScore(matchListDTO, 5, 1, 3));
+
+        // 已满时列表中的用户分数变小不需要重新计算，变得比其余用户都大或不再是候选时需要
+        Assertions.assertEquals(1, MatchListManager.mergeScore(matchListDTO, 3, 0, 3));
+        Assertions.assertArrayEquals(new int[]{0, 0, 0}, matchListDTO.getScores());
+        Assertions.assertEquals(-1, MatchListManager.mergeScore(matchListDTO, 3, 1, 3));
+        Assertions.assertEquals(-1, MatchListManager.mergeScore(matchListDTO, 3, -1, 3));
+    }
+
+    @Test
+    void testMergeScoreMatchesRecompute() {
+        Random random = new Random(42);
+        int userCount = 50;
+        int listSize = 10;
+        for (int round = 0; round < 10000; round++) {
+            int[] allScores = new int[userCount];
+            for (int i = 0; i < userCount; i++) {
+                // -1 表示不是候选用户
+                allScores[i] = random.nextInt(12) - 1;
+            }
+            MatchListDTO matchListDTO = topK(allScores, listSize);
+            int changedUserId = random.nextInt(userCount);
+            allScores[changedUserId] = random.nextInt(12) - 1;
+            int result = MatchListManager.mergeScore(matchListDTO, changedUserId, allScores[changedUserId], listSize);
+            if (result < 0) {
+                continue;
+            }
+            // 分数相同的用户顺序不确定，只比较分数
+            Assertions.assertArrayEquals(topK(allScores, listSize).getScores(), matchListDTO.getScores());
+            for (int i = 0; i < matchListDTO.getUserIds().length; i++) {
+                Assertions.assertEquals(allScores[(int) matchListDTO.getUserIds()[i]], matchListDTO.getScores()[i]);
+            }
+        }
+    }
+
+    private static MatchListDTO topK(int[] allScores, int listSize) {
+        long[][] entries = new long[allScores.length][];
+        int count = 0;
+        for (int i = 0; i < allScores.length; i++) {
+            if (allScores[i] >= 0) {
+                entries[count++] = new long[]{allScores[i], i};
+            }
+        }
+        entries = Arrays.copyOf(entries, count);
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        int size = Math.min(listSize, count);
+        long[] userIds = new long[size];
+        int[] scores = new int[size];
+        for (int i = 0; i < size; i++) {
+            userIds[i] = entries[i][1];
+            scores[i] = (int) entries[i][0];
+        }
+        return matchList(userIds, scores);
+    }
+
+    private static MatchListDTO matchList(long[] userIds, int[] scores) {
+        MatchListDTO matchListDTO = new MatchListDTO();
+        matchListDTO.setUserIds(userIds);
+        matchListDTO.setScores(scores);
+        return matchListDTO;
+    }
+}
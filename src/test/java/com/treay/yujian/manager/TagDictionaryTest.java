@@ -0,0 +1,69 @@
+package com.treay.yujian.manager;
+
+import com.treay.yujian.model.domain.Tag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 标签字典测试
+ *
+ * @author Treay
+ */
+public class TagDictionaryTest {
+
+    @Test
+    void testNormalize() {
+        Assertions.assertEquals("java", TagDictionary.normalize(" Ｊａｖａ "));
+        Assertions.assertEquals("spring boot", TagDictionary.normalize("Spring \t Boot"));
+        Assertions.assertNull(TagDictionary.normalize("  "));
+
+        TagDictionary tagDictionary = new TagDictionary();
+        int tagId = tagDictionary.intern("Java");
+        Assertions.assertEquals(tagId, tagDictionary.intern("JAVA"));
+        Assertions.assertEquals(tagId, tagDictionary.find("ｊａｖａ"));
+        // 展示名为第一次登记时的名称
+        Assertions.assertEquals("Java", tagDictionary.getTagName(tagId));
+        Assertions.assertEquals(-1, tagDictionary.find("Python"));
+    }
+
+    @Test
+    void testSynonymAndParent() {
+        TagDictionary tagDictionary = new TagDictionary();
+        int jsId = tagDictionary.intern("js");
+        List<Tag> tagList = Arrays.asList(
+                tag(1L, "JavaScript", 3L, null),
+                tag(2L, "JS", null, 1L),
+                tag(3L, "前端", null, null));
+        Assertions.assertTrue(tagDictionary.load(tagList));
+        Assertions.assertEquals(1, tagDictionary.getVersion());
+        // 没有变化时不递增版本
+        Assertions.assertFalse(tagDictionary.load(tagList));
+
+        int javaScriptId = tagDictionary.intern("javascript");
+        Assertions.assertEquals(javaScriptId, tagDictionary.intern("Js"));
+        // 同义词生效前登记的编号可以转换为规范标签编号
+        Assertions.assertEquals(javaScriptId, tagDictionary.canonicalId(jsId));
+        Assertions.assertEquals("JavaScript", tagDictionary.canonicalName("js"));
+        Assertions.assertEquals(tagDictionary.find("前端"), tagDictionary.getParentIds()[javaScriptId]);
+
+        // 反转同义关系后编号不变，规范标签随之变化
+        Assertions.assertTrue(tagDictionary.load(Arrays.asList(
+                tag(1L, "JavaScript", null, 2L),
+                tag(2L, "JS", null, null))));
+        Assertions.assertEquals(jsId, tagDictionary.find("JavaScript"));
+        Assertions.assertEquals("JS", tagDictionary.getTagName(jsId));
+        Assertions.assertEquals(-1, tagDictionary.getParentIds()[tagDictionary.find("JS")]);
+    }
+
+    private static Tag tag(Long id, String tagName, Long parentId, Long synonymId) {
+        Tag tag = new Tag();
+        tag.setId(id);
+        tag.setTagName(tagName);
+        tag.setParentId(parentId);
+        tag.setSynonymId(synonymId);
+        return tag;
+    }
+}
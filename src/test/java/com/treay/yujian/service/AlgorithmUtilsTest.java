@@ -1,10 +1,16 @@
 package com.treay.yujian.service;
 
 import com.treay.yujian.utils.AlgorithmUtils;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 /**
  * 算法工具类测试
@@ -42,4 +48,93 @@ public class AlgorithmUtilsTest {
         System.out.println(score2);
     }
 
+
+    @Test
+    void testCompareTagIdsMatchesTagList() {
+        Random random = new Random(42);
+        String[] vocabulary = {"Java", "Python", "C++", "Go", "大一", "大二", "大三", "男", "女", "萌新", "算法", "前端"};
+        for (int round = 0; round < 5000; round++) {
+            List<String> tagList1 = randomTags(random, vocabulary);
+            List<String> tagList2 = randomTags(random, vocabulary);
+            int expected = AlgorithmUtils.minDistance(tagList1, tagList2);
+
+            Map<String, Integer> tagIdMap = new HashMap<>();
+            int[] tagIds1 = toSortedTagIds(tagList1, tagIdMap);
+            int[] tagIds2 = toSortedTagIds(tagList2, tagIdMap);
+            Assertions.assertEquals(expected, AlgorithmUtils.minDistance(tagIds1, tagIds2));
+
+            // 带上界：不超过上界时结果准确，超过上界时只返回 bound + 1
+            int bound = random.nextInt(8);
+            int bounded = AlgorithmUtils.minDistance(tagIds1, tagIds2, bound);
+            if (expected <= bound) {
+                Assertions.assertEquals(expected, bounded);
+            } else {
+                Assertions.assertEquals(bound + 1, bounded);
+            }
+        }
+    }
+
+    @Test
+    void testCompareTagsNotModifyCallerList() {
+        List<String> tagList1 = new ArrayList<>(Arrays.asList("男", "Java", "大一"));
+        List<String> tagList2 = new ArrayList<>(Arrays.asList("女", "大一", "Java"));
+        AlgorithmUtils.minDistance(tagList1, tagList2);
+        Assertions.assertEquals(Arrays.asList("男", "Java", "大一"), tagList1);
+        Assertions.assertEquals(Arrays.asList("女", "大一", "Java"), tagList2);
+    }
+
+    @Test
+    void testHierarchyDistance() {
+        Random random = new Random(7);
+        String[] vocabulary = {"Java", "Python", "Spring", "大一", "大二", "男", "女"};
+        Map<String, Integer> tagIdMap = new HashMap<>();
+        for (String tag : vocabulary) {
+            tagIdMap.put(tag, tagIdMap.size());
+        }
+        // 没有层级关系时结果是普通编辑距离的 2 倍
+        int[] noParents = new int[vocabulary.length];
+        Arrays.fill(noParents, -1);
+        for (int round = 0; round < 1000; round++) {
+            int[] tagIds1 = toSortedTagIds(randomTags(random, vocabulary), tagIdMap);
+            int[] tagIds2 = toSortedTagIds(randomTags(random, vocabulary), tagIdMap);
+            Assertions.assertEquals(AlgorithmUtils.minDistance(tagIds1, tagIds2) * 2,
+                    AlgorithmUtils.hierarchyMinDistance(tagIds1, tagIds2, Integer.MAX_VALUE, noParents));
+        }
+
+        // Spring 的父标签是 Java，大一、大二是兄弟标签
+        int[] parents = noParents.clone();
+        int grade = tagIdMap.size();
+        parents[tagIdMap.get("Spring")] = tagIdMap.get("Java");
+        parents[tagIdMap.get("大一")] = grade;
+        parents[tagIdMap.get("大二")] = grade;
+        int[] tagIds1 = toSortedTagIds(Arrays.asList("Java", "大一"), tagIdMap);
+        int[] tagIds2 = toSortedTagIds(Arrays.asList("Spring", "大一"), tagIdMap);
+        int[] tagIds3 = toSortedTagIds(Arrays.asList("Spring", "大二"), tagIdMap);
+        int[] tagIds4 = toSortedTagIds(Arrays.asList("Python", "大一"), tagIdMap);
+        Assertions.assertEquals(1, AlgorithmUtils.hierarchyMinDistance(tagIds1, tagIds2, Integer.MAX_VALUE, parents));
+        Assertions.assertEquals(2, AlgorithmUtils.hierarchyMinDistance(tagIds1, tagIds3, Integer.MAX_VALUE, parents));
+        Assertions.assertEquals(2, AlgorithmUtils.hierarchyMinDistance(tagIds1, tagIds4, Integer.MAX_VALUE, parents));
+        // 超过上界返回 bound + 1
+        Assertions.assertEquals(2, AlgorithmUtils.hierarchyMinDistance(tagIds1, tagIds3, 1, parents));
+    }
+
+    private static List<String> randomTags(Random random, String[] vocabulary) {
+        int size = random.nextInt(9);
+        List<String> tags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tags.add(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return tags;
+    }
+
+    private static int[] toSortedTagIds(List<String> tags, Map<String, Integer> tagIdMap) {
+        List<String> sortedTags = new ArrayList<>(tags);
+        Collections.sort(sortedTags);
+        int[] tagIds = new int[sortedTags.size()];
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = tagIdMap.computeIfAbsent(sortedTags.get(i), name -> tagIdMap.size());
+        }
+        return tagIds;
+    }
+
 }
@@ -0,0 +1,158 @@
+package com.treay.yujian.service;
+
+import com.treay.yujian.manager.MatchIndex;
+import com.treay.yujian.manager.MatchListManager;
+import com.treay.yujian.manager.RedisTagIndex;
+import com.treay.yujian.manager.SignedTokenManager;
+import com.treay.yujian.manager.TagDictionary;
+import com.treay.yujian.mapper.UserMapper;
+import com.treay.yujian.model.domain.User;
+import com.treay.yujian.model.dto.UserDTO;
+import com.treay.yujian.service.impl.UserServiceImpl;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+/**
+ * 标签修改同步测试：一个实例修改标签或删除用户后，另一个实例按 updateTime 同步到自己的匹配索引
+ *
+ * @author Treay
+ */
+public class UserTagsRefreshTest {
+
+    private static final long USER_ID = 1L;
+
+    /**
+     * 模拟的 user 表，updateById 按 MySQL 的 ON UPDATE CURRENT_TIMESTAMP 语义处理 updateTime
+     */
+    private final Map<Long, User> userTable = new ConcurrentHashMap<>();
+
+    private UserServiceImpl userService;
+
+    private MatchIndex otherMatchIndex;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(USER_ID);
+        user.setTags("[\"java\"]");
+        user.setIsDelete(0);
+        user.setUpdateTime(new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        userTable.put(USER_ID, user);
+
+        UserMapper userMapper = mockUserMapper();
+        TagService tagService = Mockito.mock(TagService.class);
+        Mockito.when(tagService.getTagDictionary()).thenReturn(new TagDictionary());
+        SignedTokenManager signedTokenManager = Mockito.mock(SignedTokenManager.class);
+        Mockito.when(signedTokenManager.isEnabled()).thenReturn(true);
+
+        userService = new UserServiceImpl();
+        ReflectionTestUtils.setField(userService, "baseMapper", userMapper);
+        ReflectionTestUtils.setField(userService, "userMapper", userMapper);
+        ReflectionTestUtils.setField(userService, "userTagService", Mockito.mock(UserTagService.class));
+        ReflectionTestUtils.setField(userService, "redisTagIndex", Mockito.mock(RedisTagIndex.class));
+        ReflectionTestUtils.setField(userService, "matchIndex", Mockito.mock(MatchIndex.class));
+        ReflectionTestUtils.setField(userService, "matchListManager", Mockito.mock(MatchListManager.class));
+        ReflectionTestUtils.setField(userService, "signedTokenManager", signedTokenManager);
+
+        // 另一个实例的匹配索引
+        otherMatchIndex = new MatchIndex();
+        ReflectionTestUtils.setField(otherMatchIndex, "userMapper", userMapper);
+        ReflectionTestUtils.setField(otherMatchIndex, "tagService", tagService);
+        ReflectionTestUtils.setField(otherMatchIndex, "lshBands", 16);
+        ReflectionTestUtils.setField(otherMatchIndex, "lshRows", 2);
+        otherMatchIndex.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        otherMatchIndex.destroy();
+    }
+
+    @Test
+    void testOtherInstanceSeesTagEdit() {
+        Assertions.assertArrayEquals(new long[]{USER_ID}, otherMatchIndex.searchByTags(Collections.singletonList("java")));
+        Date since = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(USER_ID);
+        userDTO.setTags("[\"python\"]");
+        userService.updateTags(userDTO, userTable.get(USER_ID));
+
+        Assertions.assertEquals(1, otherMatchIndex.refreshUpdatedSince(since));
+        Assertions.assertArrayEquals(new long[]{USER_ID}, otherMatchIndex.searchByTags(Collections.singletonList("python")));
+        Assertions.assertEquals(0, otherMatchIndex.searchByTags(Collections.singletonList("java")).length);
+    }
+
+    @Test
+    void testOtherInstanceDropsDeletedUser() {
+        Assertions.assertArrayEquals(new long[]{USER_ID}, otherMatchIndex.searchByTags(Collections.singletonList("java")));
+        Date since = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+
+        // 逻辑删除同样会刷新 updateTime
+        User user = userTable.get(USER_ID);
+        user.setIsDelete(1);
+        user.setUpdateTime(new Date());
+
+        Assertions.assertEquals(1, otherMatchIndex.refreshUpdatedSince(since));
+        Assertions.assertEquals(0, otherMatchIndex.searchByTags(Collections.singletonList("java")).length);
+    }
+
+    private UserMapper mockUserMapper() {
+        UserMapper userMapper = Mockito.mock(UserMapper.class);
+        Mockito.when(userMapper.selectById(anyLong())).thenAnswer(invocation -> copy(userTable.get((Long) invocation.getArgument(0))));
+        Mockito.when(userMapper.updateById(any(User.class))).thenAnswer(invocation -> {
+            User entity = invocation.getArgument(0);
+            User row = userTable.get(entity.getId());
+            row.setTags(entity.getTags());
+            // 显式写入 updateTime 时不会触发 ON UPDATE CURRENT_TIMESTAMP
+            row.setUpdateTime(entity.getUpdateTime() != null ? entity.getUpdateTime() : new Date());
+            return 1;
+        });
+        Mockito.doAnswer(invocation -> {
+            ResultHandler<User> resultHandler = invocation.getArgument(0);
+            DefaultResultContext<User> resultContext = new DefaultResultContext<>();
+            for (User user : userTable.values()) {
+                resultContext.nextResultObject(copy(user));
+                resultHandler.handleResult(resultContext);
+            }
+            return null;
+        }).when(userMapper).scanUserTags(any());
+        Mockito.when(userMapper.listUserTagsUpdatedSince(any())).thenAnswer(invocation -> {
+            Date since = invocation.getArgument(0);
+            List<User> userList = new ArrayList<>();
+            for (User user : userTable.values()) {
+                if (!user.getUpdateTime().before(since)) {
+                    userList.add(copy(user));
+                }
+            }
+            return userList;
+        });
+        return userMapper;
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setTags(user.getTags());
+        copy.setUpdateTime(user.getUpdateTime());
+        copy.setIsDelete(user.getIsDelete());
+        return copy;
+    }
+}
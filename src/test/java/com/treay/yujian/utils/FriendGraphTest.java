@@ -0,0 +1,106 @@
+package com.treay.yujian.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内存好友图测试
+ *
+ * @author Treay
+ */
+public class FriendGraphTest {
+
+    /**
+     * 1-2, 1-3, 2-3, 2-4, 3-4, 3-5，按 (userId, friendId) 升序的两个方向
+     */
+    private static FriendGraph newGraph(int compactThreshold) {
+        long[][] edges = {{1, 2}, {1, 3}, {2, 3}, {2, 4}, {3, 4}, {3, 5}};
+        List<long[]> directed = new ArrayList<>();
+        for (long[] edge : edges) {
+            directed.add(new long[]{edge[0], edge[1]});
+            directed.add(new long[]{edge[1], edge[0]});
+        }
+        directed.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        long[] userIds = new long[directed.size()];
+        long[] friendIds = new long[directed.size()];
+        for (int i = 0; i < directed.size(); i++) {
+            userIds[i] = directed.get(i)[0];
+            friendIds[i] = directed.get(i)[1];
+        }
+        FriendGraph friendGraph = new FriendGraph(compactThreshold);
+        friendGraph.beginLoad();
+        friendGraph.finishLoad(userIds, friendIds, userIds.length);
+        return friendGraph;
+    }
+
+    @Test
+    void testMutualFriends() {
+        FriendGraph friendGraph = newGraph(100);
+        Assertions.assertArrayEquals(new long[]{1, 2, 4, 5}, friendGraph.getFriends(3));
+        Assertions.assertArrayEquals(new long[]{2, 3}, friendGraph.getMutualFriends(1, 4));
+        Assertions.assertArrayEquals(new long[0], friendGraph.getMutualFriends(1, 6));
+    }
+
+    @Test
+    void testSuggest() {
+        FriendGraph friendGraph = newGraph(100);
+        long[] ids = new long[10];
+        int[] counts = new int[10];
+        // 用户 1 的好友 2、3：4 是两人的共同好友，5 只是 3 的好友
+        int count = friendGraph.suggest(1, 10, ids, counts);
+        Assertions.assertEquals(2, count);
+        Assertions.assertEquals(4, ids[0]);
+        Assertions.assertEquals(2, counts[0]);
+        Assertions.assertEquals(5, ids[1]);
+        Assertions.assertEquals(1, counts[1]);
+        // 只取一个
+        Assertions.assertEquals(1, friendGraph.suggest(1, 1, ids, counts));
+        Assertions.assertEquals(4, ids[0]);
+        Assertions.assertEquals(0, friendGraph.suggest(6, 10, ids, counts));
+    }
+
+    @Test
+    void testUpdateAndCompact() {
+        // 阈值为 2，第二次修改时合并
+        FriendGraph friendGraph = newGraph(2);
+        friendGraph.addFriend(1, 4);
+        Assertions.assertArrayEquals(new long[]{2, 3, 4}, friendGraph.getFriends(1));
+        Assertions.assertArrayEquals(new long[]{1, 2, 3}, friendGraph.getFriends(4));
+        friendGraph.removeFriend(3, 5);
+        friendGraph.addFriend(6, 1);
+        Assertions.assertArrayEquals(new long[]{1, 2, 4}, friendGraph.getFriends(3));
+        Assertions.assertArrayEquals(new long[0], friendGraph.getFriends(5));
+        Assertions.assertArrayEquals(new long[]{1}, friendGraph.getFriends(6));
+        Assertions.assertArrayEquals(new long[]{2, 3, 4, 6}, friendGraph.getFriends(1));
+        Assertions.assertEquals(5, friendGraph.userCount());
+    }
+
+    @Test
+    void testReplayDuringLoad() {
+        FriendGraph friendGraph = newGraph(100);
+        friendGraph.beginLoad();
+        // 加载期间的修改不在加载的数据中，加载完成后重放
+        friendGraph.addFriend(5, 6);
+        friendGraph.removeFriend(1, 2);
+        friendGraph.finishLoad(new long[]{1, 2}, new long[]{2, 1}, 2);
+        Assertions.assertArrayEquals(new long[0], friendGraph.getFriends(1));
+        Assertions.assertArrayEquals(new long[]{6}, friendGraph.getFriends(5));
+        Assertions.assertArrayEquals(new long[]{5}, friendGraph.getFriends(6));
+    }
+
+    @Test
+    void testCancelLoad() {
+        FriendGraph friendGraph = newGraph(100);
+        friendGraph.beginLoad();
+        friendGraph.addFriend(5, 6);
+        friendGraph.cancelLoad();
+        // 取消后的修改直接生效，下次加载不会重放取消前记录的修改
+        friendGraph.beginLoad();
+        friendGraph.finishLoad(new long[]{1, 2}, new long[]{2, 1}, 2);
+        Assertions.assertArrayEquals(new long[0], friendGraph.getFriends(5));
+        Assertions.assertArrayEquals(new long[]{2}, friendGraph.getFriends(1));
+    }
+}
@@ -0,0 +1,48 @@
+package com.treay.yujian.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 签名令牌测试
+ *
+ * @author Treay
+ */
+public class SignedTokenTest {
+
+    private static final long NOW = 1700000000000L;
+
+    private final SignedToken signedToken = new SignedToken("test-secret-0123456789".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void testSignAndVerify() {
+        String token = signedToken.sign(42, 1, NOW, NOW + 60000);
+        // 令牌会拼在 “账号-令牌” 中，不能包含 “-”
+        Assertions.assertFalse(token.contains("-"));
+        SignedToken.Claims claims = signedToken.verify(token, NOW + 1000);
+        Assertions.assertNotNull(claims);
+        Assertions.assertEquals(42, claims.getUserId());
+        Assertions.assertEquals(1, claims.getUserRole());
+        Assertions.assertEquals(NOW, claims.getIssuedAt());
+        Assertions.assertEquals(NOW + 60000, claims.getExpireAt());
+    }
+
+    @Test
+    void testRejectInvalidToken() {
+        String token = signedToken.sign(42, 0, NOW, NOW + 60000);
+        // 过期
+        Assertions.assertNull(signedToken.verify(token, NOW + 60000));
+        // 篡改用户 id
+        Assertions.assertNull(signedToken.verify("2b" + token.substring(2), NOW));
+        // 篡改签名
+        char last = token.charAt(token.length() - 1);
+        Assertions.assertNull(signedToken.verify(token.substring(0, token.length() - 1) + (last == '0' ? '1' : '0'), NOW));
+        // 其他密钥签发
+        SignedToken otherToken = new SignedToken("other-secret-0123456789".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertNull(otherToken.verify(token, NOW));
+        Assertions.assertNull(signedToken.verify("not-a-token", NOW));
+        Assertions.assertNull(signedToken.verify(null, NOW));
+    }
+}
@@ -0,0 +1,69 @@
+package com.treay.yujian.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * 标签前缀索引测试
+ *
+ * @author Treay
+ */
+public class TagPrefixIndexTest {
+
+    @Test
+    void testSuggest() {
+        String[] keys = {"java", "javascript", "js", "go", "golang", "前端", "前端工程化"};
+        String[] names = {"Java", "JavaScript", "JavaScript", "Go", "Go", "前端", "前端工程化"};
+        long[] counts = {100, 80, 80, 50, 50, 30, 5};
+        TagPrefixIndex prefixIndex = new TagPrefixIndex(keys, names, counts);
+
+        Assertions.assertEquals(Arrays.asList("Java", "JavaScript"), prefixIndex.suggest("j", 10));
+        // 同义标签联想到规范标签，且只出现一次
+        Assertions.assertEquals(Arrays.asList("JavaScript"), prefixIndex.suggest("js", 10));
+        Assertions.assertEquals(Arrays.asList("Go"), prefixIndex.suggest("go", 10));
+        Assertions.assertEquals(Arrays.asList("前端"), prefixIndex.suggest("前", 1));
+        Assertions.assertTrue(prefixIndex.suggest("python", 10).isEmpty());
+        Assertions.assertTrue(prefixIndex.suggest("", 10).isEmpty());
+    }
+
+    @Test
+    void testSuggestSameAsScan() {
+        Random random = new Random(42);
+        int tagCount = 5000;
+        String[] keys = new String[tagCount];
+        long[] counts = new long[tagCount];
+        for (int i = 0; i < tagCount; i++) {
+            // 编号保证不重复
+            keys[i] = (char) ('a' + random.nextInt(6)) + "" + (char) ('a' + random.nextInt(6)) + i;
+            counts[i] = random.nextInt(100000);
+        }
+        TagPrefixIndex prefixIndex = new TagPrefixIndex(keys, keys, counts);
+        for (String prefix : new String[]{"a", "bc", "ff1", "zz"}) {
+            List<Integer> matched = new ArrayList<>();
+            for (int i = 0; i < tagCount; i++) {
+                if (keys[i].startsWith(prefix)) {
+                    matched.add(i);
+                }
+            }
+            List<Long> expected = matched.stream()
+                    .map(i -> counts[i])
+                    .sorted(Comparator.reverseOrder())
+                    .limit(10)
+                    .collect(Collectors.toList());
+            List<String> suggestions = prefixIndex.suggest(prefix, 10);
+            List<Long> actual = new ArrayList<>();
+            for (String suggestion : suggestions) {
+                Assertions.assertTrue(suggestion.startsWith(prefix));
+                actual.add(counts[Arrays.asList(keys).indexOf(suggestion)]);
+            }
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.treay.yujian.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 倒排索引测试
+ *
+ * @author Treay
+ */
+public class TermIndexTest {
+
+    @Test
+    void testSearch() {
+        TermIndex termIndex = new TermIndex();
+        termIndex.put(1, weights("羽毛球", 2, "周末", 1));
+        termIndex.put(2, weights("羽毛球", 1, "篮球", 1));
+        termIndex.put(3, weights("篮球", 2, "周末", 1));
+        Assertions.assertEquals(3, termIndex.size());
+        // 名称中出现的词权重更高
+        Assertions.assertEquals(Arrays.asList(1L, 2L), termIndex.search(Collections.singletonList("羽毛球")));
+        // 必须包含全部词
+        Assertions.assertEquals(Arrays.asList(1L), termIndex.search(Arrays.asList("羽毛球", "周末")));
+        Assertions.assertTrue(termIndex.search(Arrays.asList("羽毛球", "乒乓球")).isEmpty());
+        Assertions.assertTrue(termIndex.search(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    void testPutAndRemove() {
+        TermIndex termIndex = new TermIndex();
+        termIndex.put(1, weights("java", 1));
+        termIndex.put(2, weights("java", 1));
+        // 替换文档时旧词被移除
+        termIndex.put(1, weights("go", 1));
+        Assertions.assertEquals(Arrays.asList(2L), termIndex.search(Collections.singletonList("java")));
+        Assertions.assertEquals(Arrays.asList(1L), termIndex.search(Collections.singletonList("go")));
+        termIndex.remove(2);
+        Assertions.assertTrue(termIndex.search(Collections.singletonList("java")).isEmpty());
+        Assertions.assertEquals(1, termIndex.size());
+        // 没有词的文档不占用索引
+        termIndex.put(1, new HashMap<>());
+        Assertions.assertEquals(0, termIndex.size());
+    }
+
+    private static Map<String, Integer> weights(Object... termAndWeights) {
+        Map<String, Integer> termWeights = new HashMap<>();
+        for (int i = 0; i < termAndWeights.length; i += 2) {
+            termWeights.put((String) termAndWeights[i], (Integer) termAndWeights[i + 1]);
+        }
+        return termWeights;
+    }
+}